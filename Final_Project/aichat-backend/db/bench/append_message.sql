@@ -0,0 +1,13 @@
+-- One append as MessagePersistenceService performs it: lock the conversation,
+-- insert the message after the current tail, then link it.
+-- Run with -D convs=<number of seeded conversations>.
+\set conv random(1, :convs)
+BEGIN;
+SELECT last_message_id AS prev_id FROM conversation WHERE id = :conv FOR UPDATE \gset
+INSERT INTO message (conv_id, role, content, prev_message_id)
+VALUES (:conv, 'USER', 'pgbench append about indexes and partitions', :prev_id)
+RETURNING id AS new_id \gset
+WITH prev AS (
+    UPDATE message SET next_message_id = :new_id WHERE conv_id = :conv AND id = :prev_id)
+UPDATE conversation SET last_message_id = :new_id, message_count = message_count + 1 WHERE id = :conv;
+END;
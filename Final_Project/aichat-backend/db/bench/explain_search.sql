@@ -0,0 +1,16 @@
+-- Plan of the search read for bench_user (id 1 after seed.sql):
+--   psql ai_chat_bench -f explain_search.sql
+-- After V5 the Bitmap Index Scan on idx_message_conv_content_tsv should carry both
+-- conv_id = ANY ($0) and content_tsv @@ q in its Index Cond, i.e. the user's conversation ids
+-- are applied inside the index scan, and its row count should be the user's matches only.
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT m.id, m.conv_id, c.title, m.role, m.ts, m.content, ts_rank(m.content_tsv, q) AS rank
+FROM message m
+JOIN conversation c ON c.id = m.conv_id
+CROSS JOIN websearch_to_tsquery('english', 'indexes') q
+WHERE m.conv_id = ANY (ARRAY(SELECT uc.id FROM conversation uc
+                             WHERE uc.user_id = 1 AND uc.is_deleted = FALSE))
+  AND m.content_tsv @@ q
+ORDER BY rank DESC, m.id DESC
+LIMIT 20;
@@ -0,0 +1,8 @@
+-- The context-window read: findTop20ByConversationIdOrderByTimestampDescIdDesc.
+-- Run with -D convs=<number of seeded conversations>.
+\set conv random(1, :convs)
+SELECT id, conv_id, role, content, ts, prev_message_id, next_message_id
+FROM message
+WHERE conv_id = :conv
+ORDER BY ts DESC, id DESC
+LIMIT 20;
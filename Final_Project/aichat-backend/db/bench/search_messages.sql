@@ -0,0 +1,19 @@
+-- The search read: MessageRepository.searchUserMessages, as bench_user (id 1 after seed.sql).
+\set term random(1, 5)
+SELECT hit.message_id, hit.conversation_id, hit.title, hit.role, hit.ts, hit.rank,
+       ts_headline('english', hit.content, q,
+                   'StartSel=<<, StopSel=>>, MaxWords=24, MinWords=8, MaxFragments=2') AS snippet
+FROM (SELECT m.id AS message_id, m.conv_id AS conversation_id, c.title,
+             m.role, m.ts, m.content, ts_rank(m.content_tsv, q) AS rank
+      FROM message m
+      JOIN conversation c ON c.id = m.conv_id
+      CROSS JOIN websearch_to_tsquery('english',
+          (ARRAY['databases','java','streams','indexes','caching'])[:term]) q
+      WHERE m.conv_id = ANY (ARRAY(SELECT uc.id FROM conversation uc
+                                   WHERE uc.user_id = 1 AND uc.is_deleted = FALSE))
+        AND m.content_tsv @@ q
+      ORDER BY rank DESC, m.id DESC
+      LIMIT 20) hit
+CROSS JOIN websearch_to_tsquery('english',
+    (ARRAY['databases','java','streams','indexes','caching'])[:term]) q
+ORDER BY hit.rank DESC, hit.message_id DESC;
@@ -0,0 +1,39 @@
+-- Seeds a scratch database for the pgbench scripts in this directory.
+-- Expects an empty schema (conversation ids start at 1), for example:
+--   psql ai_chat_bench -v convs=50 -v msgs=10000 -f seed.sql
+
+INSERT INTO app_user (username, pass_hash) VALUES ('bench_user', 'not-a-real-hash');
+
+INSERT INTO conversation (user_id, title)
+SELECT u.id, 'Bench ' || g
+FROM app_user u, generate_series(1, :convs) g
+WHERE u.username = 'bench_user';
+
+-- Alternating turns, one second apart, about 200 characters each
+INSERT INTO message (conv_id, role, content, ts)
+SELECT c.id,
+       CASE WHEN g % 2 = 1 THEN 'USER' ELSE 'ASSISTANT' END,
+       'Seed message ' || g || ' about ' || (ARRAY['databases','java','streams','indexes','caching'])[1 + g % 5]
+           || ' ' || repeat(md5(c.id::text || '-' || g::text), 5),
+       now() - make_interval(secs => :msgs - g)
+FROM conversation c, generate_series(1, :msgs) g;
+
+-- Link each conversation's messages into the list the backend maintains
+UPDATE message m
+SET prev_message_id = l.prev_id, next_message_id = l.next_id
+FROM (SELECT id,
+             lag(id) OVER w AS prev_id,
+             lead(id) OVER w AS next_id
+      FROM message
+      WINDOW w AS (PARTITION BY conv_id ORDER BY ts, id)) l
+WHERE m.id = l.id;
+
+UPDATE conversation c
+SET head_message_id = s.head_id, last_message_id = s.last_id, message_count = s.cnt
+FROM (SELECT conv_id, MIN(id) AS head_id, MAX(id) AS last_id, COUNT(*) AS cnt
+      FROM message GROUP BY conv_id) s
+WHERE c.id = s.conv_id;
+
+UPDATE app_user SET conversation_count = :convs WHERE username = 'bench_user';
+
+VACUUM ANALYZE;
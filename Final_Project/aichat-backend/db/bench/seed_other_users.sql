@@ -0,0 +1,30 @@
+-- Adds conversations owned by other users, so a search has rows to filter out.
+-- Run after seed.sql:
+--   psql ai_chat_bench -v users=20 -v convs=50 -v msgs=1000 -f seed_other_users.sql
+-- Messages are not linked into lists; only the search scripts read them.
+
+INSERT INTO app_user (username, pass_hash, conversation_count)
+SELECT 'other_user_' || g, 'not-a-real-hash', :convs
+FROM generate_series(1, :users) g;
+
+INSERT INTO conversation (user_id, title)
+SELECT u.id, 'Other ' || g
+FROM app_user u, generate_series(1, :convs) g
+WHERE u.username LIKE 'other_user_%';
+
+INSERT INTO message (conv_id, role, content, ts)
+SELECT c.id,
+       CASE WHEN g % 2 = 1 THEN 'USER' ELSE 'ASSISTANT' END,
+       'Seed message ' || g || ' about ' || (ARRAY['databases','java','streams','indexes','caching'])[1 + g % 5]
+           || ' ' || repeat(md5(c.id::text || '-' || g::text), 5),
+       now() - make_interval(secs => :msgs - g)
+FROM conversation c
+JOIN app_user u ON u.id = c.user_id AND u.username LIKE 'other_user_%',
+     generate_series(1, :msgs) g;
+
+UPDATE conversation c
+SET message_count = s.cnt
+FROM (SELECT conv_id, COUNT(*) AS cnt FROM message GROUP BY conv_id) s
+WHERE c.id = s.conv_id;
+
+VACUUM ANALYZE;
@@ -0,0 +1,54 @@
+-- Optional: hash-partition message by conv_id.
+--
+-- Not a Flyway migration; run it by hand after V5 with the backend stopped:
+--   psql ai_chat -f partition_message_by_conversation.sql
+--
+-- Every read and append in the backend filters on conv_id, so each touches a single partition,
+-- and each partition keeps small indexes and can be vacuumed on its own. Trade-offs:
+--   * The primary key becomes (conv_id, id); PostgreSQL cannot enforce uniqueness of id alone
+--     across partitions, so the prev/next self-references lose their foreign keys.
+--   * Lookups by id without conv_id probe every partition.
+-- Range partitioning by ts was not chosen: reads are per conversation, not per time window,
+-- and an old conversation's messages would be spread over every range.
+-- The script rewrites the whole table under an exclusive lock.
+
+BEGIN;
+
+LOCK TABLE message IN ACCESS EXCLUSIVE MODE;
+
+CREATE TABLE message_partitioned (
+    id BIGINT NOT NULL DEFAULT nextval('message_id_seq'),
+    conv_id INT NOT NULL REFERENCES conversation(id),
+    role TEXT CHECK (role IN ('USER','ASSISTANT')) NOT NULL,
+    content TEXT NOT NULL,
+    ts TIMESTAMPTZ DEFAULT now(),
+    prev_message_id BIGINT NULL,
+    next_message_id BIGINT NULL,
+    content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', content)) STORED,
+    PRIMARY KEY (conv_id, id)
+) PARTITION BY HASH (conv_id);
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE message_p%s PARTITION OF message_partitioned'
+                       ' FOR VALUES WITH (MODULUS 16, REMAINDER %s)', lpad(i::text, 2, '0'), i);
+    END LOOP;
+END $$;
+
+INSERT INTO message_partitioned (id, conv_id, role, content, ts, prev_message_id, next_message_id)
+SELECT id, conv_id, role, content, ts, prev_message_id, next_message_id FROM message;
+
+-- Keep the id sequence when the old table is dropped
+ALTER SEQUENCE message_id_seq OWNED BY message_partitioned.id;
+DROP TABLE message;
+
+ALTER TABLE message_partitioned RENAME TO message;
+ALTER INDEX message_partitioned_pkey RENAME TO message_pkey;
+
+CREATE INDEX idx_message_conv_ts ON message(conv_id, ts ASC, id ASC);
+CREATE INDEX idx_message_conv_content_tsv ON message USING GIN (conv_id, content_tsv);
+
+COMMIT;
+
+ANALYZE message;
@@ -0,0 +1,126 @@
+package com.nyu.aichat.config;
+
+import com.nyu.aichat.service.KeyedSerialExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class AsyncConfig {
+    
+    /**
+     * Bounded pool that drives streaming AI replies off the request thread.
+     * Rejects new streams once the queue is full instead of growing without limit.
+     * In virtual-thread mode the workers are virtual threads, so pool-size can be raised cheaply.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor chatStreamExecutor(
+            @Value("${chat.stream.pool-size:16}") int poolSize,
+            @Value("${chat.stream.queue-capacity:100}") int queueCapacity,
+            @Value("${chat.execution.virtual-threads:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        if (virtualThreads) {
+            executor.setThreadFactory(VirtualThreads.threadFactory("chat-stream-"));
+        } else {
+            executor.setThreadNamePrefix("chat-stream-");
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Delivers streamed Gemini lines (and so SSE writes) off the HTTP client's I/O reactor.
+     * Each open stream uses at most one thread at a time, so it is sized like chatStreamExecutor.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor geminiStreamDeliveryExecutor(
+            @Value("${chat.stream.pool-size:16}") int poolSize,
+            @Value("${chat.stream.queue-capacity:100}") int queueCapacity,
+            @Value("${chat.execution.virtual-threads:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        if (virtualThreads) {
+            executor.setThreadFactory(VirtualThreads.threadFactory("gemini-stream-"));
+        } else {
+            executor.setThreadNamePrefix("gemini-stream-");
+        }
+        return executor;
+    }
+    
+    /**
+     * Bounded pool that runs plain sends, and asynchronous sends (POST .../messages?async=true) after
+     * the request has returned 202. Sends waiting for an earlier send to the same conversation hold no thread.
+     * A full queue rejects the send with 503 SERVICE_BUSY.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor chatJobExecutor(
+            @Value("${chat.jobs.pool-size:16}") int poolSize,
+            @Value("${chat.jobs.queue-capacity:200}") int queueCapacity,
+            @Value("${chat.execution.virtual-threads:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        if (virtualThreads) {
+            executor.setThreadFactory(VirtualThreads.threadFactory("chat-job-"));
+        } else {
+            executor.setThreadNamePrefix("chat-job-");
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Bounded pool for BCrypt hashing and verification, so a burst of logins cannot take the CPU
+     * and request threads that chat traffic needs. A full queue rejects with 503 SERVICE_BUSY.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+            @Value("${auth.hash.pool-size:4}") int poolSize,
+            @Value("${auth.hash.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    /**
+     * Small scheduler for Gemini hedge and deadline timers and send-queue wait timeouts. The tasks
+     * only start, cancel or fail non-blocking calls, so two threads are plenty.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler aiRequestScheduler(
+            @Value("${gemini.request.scheduler-pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("ai-request-timer-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+    
+    /**
+     * Orders message sends per conversation, so one exchange finishes before the next starts
+     * and sends do not queue on the conversation row lock. Other conversations are not affected.
+     * Waiting sends hold no thread; plain and streaming sends still waiting after max-wait-ms get 503.
+     */
+    @Bean
+    public KeyedSerialExecutor<Long> conversationSendQueue(
+            @Value("${chat.send-queue.max-wait-ms:30000}") long maxWaitMs,
+            @Qualifier("aiRequestScheduler") ThreadPoolTaskScheduler aiRequestScheduler) {
+        return new KeyedSerialExecutor<>(maxWaitMs, aiRequestScheduler);
+    }
+}
@@ -0,0 +1,105 @@
+package com.nyu.aichat.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nyu.aichat.dto.response.ErrorResponse;
+import com.nyu.aichat.service.TokenService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Authenticates API requests with the bearer token issued at login.
+ * The token's user ID replaces any client-supplied X-User-Id header, so controllers keep
+ * reading X-User-Id but can no longer be handed someone else's ID.
+ */
+public class AuthTokenFilter extends OncePerRequestFilter {
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final TokenService tokenService;
+    private final ObjectMapper objectMapper;
+    private final boolean tokenRequired;
+    
+    public AuthTokenFilter(TokenService tokenService, ObjectMapper objectMapper, boolean tokenRequired) {
+        this.tokenService = tokenService;
+        this.objectMapper = objectMapper;
+        this.tokenRequired = tokenRequired;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(AUTHORIZATION_HEADER);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            if (!tokenRequired) {
+                // Transition mode: clients without tokens still use the plain X-User-Id header
+                chain.doFilter(request, response);
+                return;
+            }
+            reject(response, "Authorization bearer token is required");
+            return;
+        }
+        
+        Long userId = tokenService.verify(authorization.substring(BEARER_PREFIX.length()).trim());
+        if (userId == null) {
+            reject(response, "Invalid or expired token");
+            return;
+        }
+        chain.doFilter(new AuthenticatedRequest(request, userId), response);
+    }
+    
+    private void reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("UNAUTHORIZED", message));
+    }
+    
+    /**
+     * Exposes the authenticated user ID as the X-User-Id header.
+     */
+    private static final class AuthenticatedRequest extends HttpServletRequestWrapper {
+        private final String userId;
+        
+        private AuthenticatedRequest(HttpServletRequest request, Long userId) {
+            super(request);
+            this.userId = userId.toString();
+        }
+        
+        @Override
+        public String getHeader(String name) {
+            return USER_ID_HEADER.equalsIgnoreCase(name) ? userId : super.getHeader(name);
+        }
+        
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return USER_ID_HEADER.equalsIgnoreCase(name)
+                    ? Collections.enumeration(Collections.singletonList(userId))
+                    : super.getHeaders(name);
+        }
+        
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            for (Enumeration<String> e = super.getHeaderNames(); e.hasMoreElements(); ) {
+                String name = e.nextElement();
+                if (!USER_ID_HEADER.equalsIgnoreCase(name)) {
+                    names.add(name);
+                }
+            }
+            names.add(USER_ID_HEADER);
+            return Collections.enumeration(names);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.nyu.aichat.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Wall clock shared by components that compare against the time of day (token expiry,
+ * circuit-breaker open period, request hedging), so one bean decides what "now" is.
+ */
+@Configuration
+public class ClockConfig {
+    
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
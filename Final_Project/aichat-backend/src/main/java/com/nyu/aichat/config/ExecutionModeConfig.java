@@ -0,0 +1,29 @@
+package com.nyu.aichat.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in virtual-thread execution mode (chat.execution.virtual-threads=true, JDK 21+).
+ * Tomcat runs every request on its own virtual thread, so requests parked on Gemini I/O
+ * no longer occupy a platform worker thread. The default remains the platform thread pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.execution.virtual-threads", havingValue = "true")
+public class ExecutionModeConfig {
+    
+    /**
+     * Replaces Tomcat's worker pool with a virtual-thread-per-request executor.
+     * server.tomcat.threads.max no longer applies; concurrency is bounded by
+     * server.tomcat.max-connections, the Gemini bulkhead and the JDBC pool.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-vt-");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+}
@@ -0,0 +1,37 @@
+package com.nyu.aichat.config;
+
+import com.nyu.aichat.service.GeminiTransport;
+import com.nyu.aichat.service.PooledGeminiTransport;
+import com.nyu.aichat.service.UrlConnectionGeminiTransport;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class GeminiTransportConfig {
+    private static final String TRANSPORT_URL_CONNECTION = "url-connection";
+    
+    /**
+     * Selects the Gemini HTTP transport. "pooled" (default) shares one async HTTP/2 client;
+     * "url-connection" falls back to a blocking HttpURLConnection per call.
+     * Spring closes the transport on shutdown.
+     */
+    @Bean
+    public GeminiTransport geminiTransport(
+            @Value("${gemini.api.key:}") String apiKey,
+            @Value("${gemini.transport:pooled}") String transport,
+            @Value("${gemini.http.connect-timeout-ms:10000}") int connectTimeoutMs,
+            @Value("${gemini.http.response-timeout-ms:10000}") int responseTimeoutMs,
+            @Value("${gemini.http.max-connections-per-route:20}") int maxConnectionsPerRoute,
+            @Value("${gemini.http.max-connections-total:50}") int maxConnectionsTotal,
+            @Value("${gemini.http.idle-timeout-seconds:30}") int idleTimeoutSeconds,
+            @Qualifier("geminiStreamDeliveryExecutor") ThreadPoolTaskExecutor streamDeliveryExecutor) {
+        if (TRANSPORT_URL_CONNECTION.equals(transport)) {
+            return new UrlConnectionGeminiTransport(apiKey, connectTimeoutMs, responseTimeoutMs);
+        }
+        return new PooledGeminiTransport(apiKey, streamDeliveryExecutor, connectTimeoutMs, responseTimeoutMs,
+                maxConnectionsPerRoute, maxConnectionsTotal, idleTimeoutSeconds);
+    }
+}
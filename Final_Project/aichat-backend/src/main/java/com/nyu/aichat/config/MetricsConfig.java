@@ -0,0 +1,107 @@
+package com.nyu.aichat.config;
+
+import com.nyu.aichat.service.AiCallGuard;
+import com.nyu.aichat.service.AiRequestHedger;
+import com.nyu.aichat.service.AiResponseCache;
+import com.nyu.aichat.service.KeyedSerialExecutor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the counters that AiCallGuard, AiRequestHedger, AiResponseCache and the
+ * conversation send queue already keep.
+ * The chatStreamExecutor, chatJobExecutor and passwordHashExecutor pools are bound by Spring Boot
+ * as executor.* metrics.
+ */
+@Configuration
+public class MetricsConfig {
+    
+    @Bean
+    public MeterBinder aiCallGuardMetrics(AiCallGuard guard) {
+        return registry -> {
+            Gauge.builder("gemini.guard.in_flight", guard, AiCallGuard::getInFlight)
+                    .description("Gemini calls currently running")
+                    .register(registry);
+            Gauge.builder("gemini.guard.queued", guard, AiCallGuard::getQueued)
+                    .description("Gemini calls waiting for a bulkhead permit")
+                    .register(registry);
+            Gauge.builder("gemini.circuit.state", guard, g -> g.getState().ordinal())
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                    .register(registry);
+            FunctionCounter.builder("gemini.guard.calls", guard, AiCallGuard::getSuccessCount)
+                    .tag("result", "success")
+                    .register(registry);
+            FunctionCounter.builder("gemini.guard.calls", guard, AiCallGuard::getFailureCount)
+                    .tag("result", "failure")
+                    .register(registry);
+            FunctionCounter.builder("gemini.guard.calls", guard, AiCallGuard::getBulkheadRejectedCount)
+                    .tag("result", "bulkhead_rejected")
+                    .register(registry);
+            FunctionCounter.builder("gemini.guard.calls", guard, AiCallGuard::getCircuitRejectedCount)
+                    .tag("result", "circuit_rejected")
+                    .register(registry);
+        };
+    }
+    
+    @Bean
+    public MeterBinder aiRequestHedgerMetrics(AiRequestHedger hedger) {
+        return registry -> {
+            FunctionCounter.builder("gemini.hedge.requests", hedger, AiRequestHedger::getCallCount)
+                    .description("Non-streaming Gemini requests")
+                    .register(registry);
+            FunctionCounter.builder("gemini.hedge.sent", hedger, AiRequestHedger::getHedgedCount)
+                    .description("Hedge attempts started; hedge rate is sent / requests")
+                    .register(registry);
+            FunctionCounter.builder("gemini.hedge.wins", hedger, AiRequestHedger::getHedgeWinCount)
+                    .description("Requests answered by the hedge; win rate is wins / sent")
+                    .register(registry);
+            FunctionCounter.builder("gemini.request.deadline_exceeded", hedger,
+                            AiRequestHedger::getDeadlineExceededCount)
+                    .description("Requests failed because the client's deadline passed")
+                    .register(registry);
+            Gauge.builder("gemini.hedge.delay", hedger, AiRequestHedger::getHedgeDelayMs)
+                    .description("Current hedge delay in ms, -1 until enough samples")
+                    .register(registry);
+        };
+    }
+    
+    @Bean
+    public MeterBinder aiResponseCacheMetrics(AiResponseCache cache) {
+        return registry -> {
+            FunctionCounter.builder("chat.response_cache.requests", cache, AiResponseCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("chat.response_cache.requests", cache, AiResponseCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("chat.response_cache.requests", cache, AiResponseCache::getCoalescedCount)
+                    .tag("result", "coalesced")
+                    .register(registry);
+            Gauge.builder("chat.response_cache.size", cache, AiResponseCache::getSize)
+                    .description("Cached replies")
+                    .register(registry);
+        };
+    }
+    
+    @Bean
+    public MeterBinder conversationSendQueueMetrics(KeyedSerialExecutor<Long> conversationSendQueue) {
+        return registry -> {
+            FunctionCounter.builder("chat.send_queue.sends", conversationSendQueue, KeyedSerialExecutor::getRunCount)
+                    .register(registry);
+            FunctionCounter.builder("chat.send_queue.contended", conversationSendQueue,
+                            KeyedSerialExecutor::getContendedCount)
+                    .description("Sends that waited for an earlier send to the same conversation")
+                    .register(registry);
+            FunctionCounter.builder("chat.send_queue.timeouts", conversationSendQueue,
+                            KeyedSerialExecutor::getTimeoutCount)
+                    .description("Sends rejected with SERVICE_BUSY after waiting max-wait-ms")
+                    .register(registry);
+            Gauge.builder("chat.send_queue.active", conversationSendQueue, KeyedSerialExecutor::getActiveKeys)
+                    .description("Conversations with a send running or waiting")
+                    .register(registry);
+        };
+    }
+}
@@ -1,5 +1,9 @@
 package com.nyu.aichat.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nyu.aichat.service.TokenService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -7,9 +11,28 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 @Configuration
 public class SecurityConfig {
     
+    /**
+     * BCrypt encoder with a configurable cost (log2 rounds, 4-31).
+     * Hashes stored at a lower cost are upgraded on the next successful login.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+    
+    /**
+     * Requires a valid session token on every user-scoped API path.
+     * With auth.token.required=false, requests without a token fall back to the X-User-Id header.
+     */
+    @Bean
+    public FilterRegistrationBean<AuthTokenFilter> authTokenFilter(
+            TokenService tokenService,
+            ObjectMapper objectMapper,
+            @Value("${auth.token.required:true}") boolean tokenRequired) {
+        FilterRegistrationBean<AuthTokenFilter> registration =
+                new FilterRegistrationBean<>(new AuthTokenFilter(tokenService, objectMapper, tokenRequired));
+        registration.addUrlPatterns("/api/v1/conversations/*", "/api/v1/search/*", "/api/v1/jobs/*");
+        return registration;
     }
 }
 
@@ -0,0 +1,54 @@
+package com.nyu.aichat.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reflective access to the Java 21 virtual-thread API, so the code still compiles for Java 1.8.
+ * Only touched when chat.execution.virtual-threads is enabled.
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+        // Prevent instantiation
+    }
+    
+    /**
+     * Creates a thread factory for named virtual threads ("prefix0", "prefix1", ...).
+     * 
+     * @param prefix The thread name prefix
+     * @return The thread factory
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    static ThreadFactory threadFactory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw unsupported(e);
+        }
+    }
+    
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     * 
+     * @param prefix The thread name prefix
+     * @return The executor
+     * @throws IllegalStateException if the running JVM has no virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory(prefix));
+        } catch (ReflectiveOperationException e) {
+            throw unsupported(e);
+        }
+    }
+    
+    private static IllegalStateException unsupported(ReflectiveOperationException cause) {
+        return new IllegalStateException("chat.execution.virtual-threads=true requires Java 21 or later, running on "
+                + System.getProperty("java.version"), cause);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -21,16 +22,17 @@ public class AuthController {
         this.authService = authService;
     }
     
+    // Async handlers: the request thread is released while BCrypt runs on the hash pool
     @PostMapping("/signup")
-    public ResponseEntity<LoginResponse> signup(@Valid @RequestBody SignupRequest request) {
-        LoginResponse response = authService.signup(request.getUsername(), request.getPassword());
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    public CompletableFuture<ResponseEntity<LoginResponse>> signup(@Valid @RequestBody SignupRequest request) {
+        return authService.signup(request.getUsername(), request.getPassword())
+                .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
     }
     
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
-        LoginResponse response = authService.login(request.getUsername(), request.getPassword());
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
+        return authService.login(request.getUsername(), request.getPassword())
+                .thenApply(ResponseEntity::ok);
     }
 }
 
@@ -3,28 +3,56 @@ package com.nyu.aichat.controller;
 import com.nyu.aichat.dto.request.CreateConversationRequest;
 import com.nyu.aichat.dto.request.SendMessageRequest;
 import com.nyu.aichat.dto.request.UpdateTitleRequest;
+import com.nyu.aichat.dto.response.ChatJobDto;
 import com.nyu.aichat.dto.response.ConversationDto;
+import com.nyu.aichat.dto.response.ConversationSummaryDto;
+import com.nyu.aichat.dto.response.ErrorResponse;
 import com.nyu.aichat.dto.response.MessageDto;
+import com.nyu.aichat.dto.response.MessagePageResponse;
 import com.nyu.aichat.dto.response.SendMessageResponse;
+import com.nyu.aichat.exception.ApiException;
+import com.nyu.aichat.service.AiRequestOptions;
+import com.nyu.aichat.service.ChatJob;
+import com.nyu.aichat.service.ChatJobService;
 import com.nyu.aichat.service.ChatService;
+import com.nyu.aichat.util.EntityMapper;
 import com.nyu.aichat.util.HeaderValidator;
 import com.nyu.aichat.util.PathValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/v1/conversations")
 public class ChatController {
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+    
     private final ChatService chatService;
+    private final ChatJobService chatJobService;
+    
+    @Value("${chat.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
     
     @Autowired
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService,
+                          ChatJobService chatJobService) {
         this.chatService = chatService;
+        this.chatJobService = chatJobService;
     }
     
     @PostMapping
@@ -44,25 +72,123 @@ public class ChatController {
         return ResponseEntity.ok(conversations);
     }
     
+    @GetMapping("/summaries")
+    public ResponseEntity<List<ConversationSummaryDto>> getUserConversationSummaries(
+            @RequestHeader("X-User-Id") Long userId) {
+        HeaderValidator.validateUserId(userId);
+        List<ConversationSummaryDto> summaries = chatService.getUserConversationSummaries(userId);
+        return ResponseEntity.ok(summaries);
+    }
+    
     @GetMapping("/{id}/messages")
-    public ResponseEntity<List<MessageDto>> getMessages(
+    public ResponseEntity<MessagePageResponse> getMessages(
             @PathVariable Long id,
-            @RequestHeader("X-User-Id") Long userId) {
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
         PathValidator.validateConversationId(id);
+        PathValidator.validateCursor(before);
         HeaderValidator.validateUserId(userId);
-        List<MessageDto> messages = chatService.getConversationHistory(id, userId);
-        return ResponseEntity.ok(messages);
+        MessagePageResponse page = chatService.getConversationHistoryPage(id, userId, before, limit);
+        return ResponseEntity.ok(page);
     }
     
+    // Async handler: the request thread is released while the send waits for its turn and runs
     @PostMapping("/{id}/messages")
-    public ResponseEntity<SendMessageResponse> sendMessage(
+    public CompletableFuture<ResponseEntity<SendMessageResponse>> sendMessage(
+            @PathVariable Long id,
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Cache-Control", required = false) String cacheControl,
+            @RequestHeader(value = "X-Request-Timeout-Ms", required = false) Long requestTimeoutMs,
+            @Valid @RequestBody SendMessageRequest request) {
+        PathValidator.validateConversationId(id);
+        HeaderValidator.validateUserId(userId);
+        HeaderValidator.validateRequestTimeout(requestTimeoutMs);
+        return chatService.sendUserMessageAndGetAiReply(id, userId, request.getText(),
+                AiRequestOptions.fromHeaders(cacheControl, requestTimeoutMs))
+                .thenApply(assistantMessage -> ResponseEntity.ok(new SendMessageResponse(assistantMessage)));
+    }
+    
+    /**
+     * Accepts a message for asynchronous sending and returns 202 with the job at once.
+     * Poll or long-poll GET /api/v1/jobs/{jobId} for the reply. The job does not inherit the
+     * request's X-Request-Timeout-Ms, since the client no longer waits on this request.
+     */
+    @PostMapping(value = "/{id}/messages", params = "async=true")
+    public ResponseEntity<ChatJobDto> submitMessage(
+            @PathVariable Long id,
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Cache-Control", required = false) String cacheControl,
+            @Valid @RequestBody SendMessageRequest request) {
+        PathValidator.validateConversationId(id);
+        HeaderValidator.validateUserId(userId);
+        ChatJob job = chatJobService.submitMessage(id, userId, request.getText(),
+                AiRequestOptions.fromCacheControl(cacheControl));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/v1/jobs/" + job.getId()))
+                .body(EntityMapper.toDto(job));
+    }
+    
+    /**
+     * Sends a message and streams the AI reply as Server-Sent Events.
+     * Emits "token" events with raw text chunks, then a single "done" event carrying
+     * the persisted assistant message, or an "error" event with an ErrorResponse.
+     */
+    @PostMapping(value = "/{id}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(
             @PathVariable Long id,
             @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Cache-Control", required = false) String cacheControl,
+            @RequestHeader(value = "X-Request-Timeout-Ms", required = false) Long requestTimeoutMs,
             @Valid @RequestBody SendMessageRequest request) {
         PathValidator.validateConversationId(id);
         HeaderValidator.validateUserId(userId);
-        MessageDto assistantMessage = chatService.sendUserMessageAndGetAiReply(id, userId, request.getText());
-        return ResponseEntity.ok(new SendMessageResponse(assistantMessage));
+        HeaderValidator.validateRequestTimeout(requestTimeoutMs);
+        AiRequestOptions options = AiRequestOptions.fromHeaders(cacheControl, requestTimeoutMs);
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        chatService.streamUserMessageAndGetAiReply(id, userId, request.getText(), options,
+                chunk -> sendEvent(emitter, clientGone, "token", chunk, MediaType.TEXT_PLAIN))
+                .whenComplete((assistantMessage, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause == null) {
+                        sendEvent(emitter, clientGone, "done", assistantMessage, MediaType.APPLICATION_JSON);
+                        emitter.complete();
+                    } else if (cause instanceof ApiException) {
+                        ApiException e = (ApiException) cause;
+                        sendEvent(emitter, clientGone, "error",
+                                new ErrorResponse(e.getErrorCode(), e.getMessage()), MediaType.APPLICATION_JSON);
+                        emitter.complete();
+                    } else if (cause instanceof RejectedExecutionException) {
+                        // An earlier send to this conversation is still running, or the stream pool filled up meanwhile
+                        sendEvent(emitter, clientGone, "error",
+                                new ErrorResponse("SERVICE_BUSY", "Server is busy, please retry shortly"),
+                                MediaType.APPLICATION_JSON);
+                        emitter.complete();
+                    } else {
+                        logger.error("Streaming failed for conversation {}", id, cause);
+                        emitter.completeWithError(cause);
+                    }
+                });
+        return emitter;
+    }
+    
+    /**
+     * Sends one SSE event. Once the client has disconnected further events are dropped,
+     * so generation still runs to the end and the reply is persisted.
+     */
+    private void sendEvent(SseEmitter emitter, AtomicBoolean clientGone, String name, Object data, MediaType mediaType) {
+        if (clientGone.get()) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, mediaType));
+        } catch (IOException | IllegalStateException e) {
+            clientGone.set(true);
+            logger.debug("SSE client disconnected, dropping remaining events: {}", e.getMessage());
+        }
     }
     
     @PutMapping("/{id}/title")
@@ -3,17 +3,20 @@ package com.nyu.aichat.controller;
 import com.nyu.aichat.dto.response.ErrorResponse;
 import com.nyu.aichat.exception.ApiException;
 import com.nyu.aichat.exception.ConversationNotFoundException;
+import com.nyu.aichat.exception.JobNotFoundException;
 import com.nyu.aichat.exception.UnauthorizedException;
 import com.nyu.aichat.exception.UserNotFoundException;
 import com.nyu.aichat.exception.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import javax.validation.ConstraintViolationException;
 import java.util.stream.Collectors;
@@ -52,6 +55,11 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex, HttpStatus.NOT_FOUND);
     }
     
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleJobNotFound(JobNotFoundException ex) {
+        return buildErrorResponse(ex, HttpStatus.NOT_FOUND);
+    }
+    
     @ExceptionHandler(UnauthorizedException.class)
     public ResponseEntity<ErrorResponse> handleUnauthorized(UnauthorizedException ex) {
         return buildErrorResponse(ex, HttpStatus.FORBIDDEN);
@@ -92,6 +100,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
     
+    // A held async request (e.g. a plain send) that outlived spring.mvc.async.request-timeout is busy too
+    @ExceptionHandler({TaskRejectedException.class, AsyncRequestTimeoutException.class})
+    public ResponseEntity<ErrorResponse> handleTaskRejected(Exception ex) {
+        logger.warn("Worker pool saturated or request held too long: {}", ex.toString());
+        ErrorResponse error = new ErrorResponse("SERVICE_BUSY", "Server is busy, please retry shortly");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+    
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<ErrorResponse> handleApiException(ApiException ex) {
         return buildErrorResponse(ex, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,48 @@
+package com.nyu.aichat.controller;
+
+import com.nyu.aichat.dto.response.ChatJobDto;
+import com.nyu.aichat.service.ChatJob;
+import com.nyu.aichat.service.ChatJobService;
+import com.nyu.aichat.util.EntityMapper;
+import com.nyu.aichat.util.HeaderValidator;
+import com.nyu.aichat.util.ValidationUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+@RestController
+@RequestMapping("/api/v1/jobs")
+public class JobController {
+    private final ChatJobService chatJobService;
+    
+    @Autowired
+    public JobController(ChatJobService chatJobService) {
+        this.chatJobService = chatJobService;
+    }
+    
+    /**
+     * Returns an asynchronous send's status, and its reply or error once finished.
+     * With waitMs > 0 this is a long poll: the response is held, without a request thread,
+     * until the job finishes or waitMs passes, and then returns the current status either way.
+     */
+    @GetMapping("/{jobId}")
+    public DeferredResult<ResponseEntity<ChatJobDto>> getJob(
+            @PathVariable String jobId,
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        HeaderValidator.validateUserId(userId);
+        ValidationUtil.validateJobWait(waitMs);
+        ChatJob job = chatJobService.getJob(jobId, userId);
+        
+        if (waitMs == 0 || job.isFinished()) {
+            DeferredResult<ResponseEntity<ChatJobDto>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.ok(EntityMapper.toDto(job)));
+            return result;
+        }
+        DeferredResult<ResponseEntity<ChatJobDto>> result = new DeferredResult<>(waitMs,
+                () -> ResponseEntity.ok(EntityMapper.toDto(job)));
+        job.whenFinished().thenAccept(finished -> result.setResult(ResponseEntity.ok(EntityMapper.toDto(finished))));
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package com.nyu.aichat.controller;
+
+import com.nyu.aichat.dto.response.SearchResultDto;
+import com.nyu.aichat.service.SearchService;
+import com.nyu.aichat.util.HeaderValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/search")
+public class SearchController {
+    private final SearchService searchService;
+    
+    @Autowired
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<SearchResultDto>> search(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        HeaderValidator.validateUserId(userId);
+        List<SearchResultDto> results = searchService.searchMessages(userId, query, limit);
+        return ResponseEntity.ok(results);
+    }
+}
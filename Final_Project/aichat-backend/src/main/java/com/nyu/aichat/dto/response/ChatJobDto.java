@@ -0,0 +1,61 @@
+package com.nyu.aichat.dto.response;
+
+public class ChatJobDto {
+    private String jobId;
+    private Long conversationId;
+    private String status;                  // PENDING, RUNNING, COMPLETED or FAILED
+    private MessageDto assistantMessage;    // Set once COMPLETED
+    private ErrorResponse error;            // Set once FAILED
+    
+    public ChatJobDto() {
+    }
+    
+    public ChatJobDto(String jobId, Long conversationId, String status, MessageDto assistantMessage,
+                      ErrorResponse error) {
+        this.jobId = jobId;
+        this.conversationId = conversationId;
+        this.status = status;
+        this.assistantMessage = assistantMessage;
+        this.error = error;
+    }
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public Long getConversationId() {
+        return conversationId;
+    }
+    
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public MessageDto getAssistantMessage() {
+        return assistantMessage;
+    }
+    
+    public void setAssistantMessage(MessageDto assistantMessage) {
+        this.assistantMessage = assistantMessage;
+    }
+    
+    public ErrorResponse getError() {
+        return error;
+    }
+    
+    public void setError(ErrorResponse error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,73 @@
+package com.nyu.aichat.dto.response;
+
+import java.time.Instant;
+
+public class ConversationSummaryDto {
+    private Long id;
+    private String title;
+    private Instant createdAt;
+    private int messageCount;
+    private Instant lastActivityAt;       // Time of the last message, or createdAt if there is none
+    private String lastMessagePreview;    // Leading characters of the last message, null if there is none
+    
+    public ConversationSummaryDto() {
+    }
+    
+    public ConversationSummaryDto(Long id, String title, Instant createdAt, Integer messageCount,
+                                  Instant lastMessageAt, String lastMessagePreview) {
+        this.id = id;
+        this.title = title;
+        this.createdAt = createdAt;
+        this.messageCount = messageCount != null ? messageCount : 0;
+        this.lastActivityAt = lastMessageAt != null ? lastMessageAt : createdAt;
+        this.lastMessagePreview = lastMessagePreview;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public int getMessageCount() {
+        return messageCount;
+    }
+    
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+    
+    public Instant getLastActivityAt() {
+        return lastActivityAt;
+    }
+    
+    public void setLastActivityAt(Instant lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+    
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+    
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+}
@@ -1,15 +1,21 @@
 package com.nyu.aichat.dto.response;
 
+import java.time.Instant;
+
 public class LoginResponse {
     private Long userId;
     private String username;
+    private String token;        // Bearer token for the Authorization header
+    private Instant expiresAt;
     
     public LoginResponse() {
     }
     
-    public LoginResponse(Long userId, String username) {
+    public LoginResponse(Long userId, String username, String token, Instant expiresAt) {
         this.userId = userId;
         this.username = username;
+        this.token = token;
+        this.expiresAt = expiresAt;
     }
     
     public Long getUserId() {
@@ -27,5 +33,21 @@ public class LoginResponse {
     public void setUsername(String username) {
         this.username = username;
     }
+    
+    public String getToken() {
+        return token;
+    }
+    
+    public void setToken(String token) {
+        this.token = token;
+    }
+    
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
 }
 
@@ -1,5 +1,7 @@
 package com.nyu.aichat.dto.response;
 
+import com.nyu.aichat.entity.MessageRole;
+
 import java.time.Instant;
 
 public class MessageDto {
@@ -18,6 +20,11 @@ public class MessageDto {
         this.ts = ts;
     }
     
+    // Used by JPQL constructor projections, which select the enum rather than its display form
+    public MessageDto(Long id, MessageRole role, String content, Instant ts) {
+        this(id, role.name().toLowerCase(), content, ts);
+    }
+    
     public Long getId() {
         return id;
     }
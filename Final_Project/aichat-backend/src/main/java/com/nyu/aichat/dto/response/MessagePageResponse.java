@@ -0,0 +1,32 @@
+package com.nyu.aichat.dto.response;
+
+import java.util.List;
+
+public class MessagePageResponse {
+    private List<MessageDto> messages;  // Oldest first within the page
+    private Long nextCursor;            // Pass as ?before= to load older messages; null when none remain
+    
+    public MessagePageResponse() {
+    }
+    
+    public MessagePageResponse(List<MessageDto> messages, Long nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<MessageDto> getMessages() {
+        return messages;
+    }
+    
+    public void setMessages(List<MessageDto> messages) {
+        this.messages = messages;
+    }
+    
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
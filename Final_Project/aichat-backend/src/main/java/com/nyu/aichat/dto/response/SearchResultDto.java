@@ -0,0 +1,83 @@
+package com.nyu.aichat.dto.response;
+
+import java.time.Instant;
+
+public class SearchResultDto {
+    private Long conversationId;
+    private String conversationTitle;
+    private Long messageId;
+    private String role;      // "user" or "assistant"
+    private Instant ts;
+    private String snippet;   // Matching fragments, with matched terms wrapped in << >>
+    private double rank;
+    
+    public SearchResultDto() {
+    }
+    
+    public SearchResultDto(Long conversationId, String conversationTitle, Long messageId, String role,
+                           Instant ts, String snippet, double rank) {
+        this.conversationId = conversationId;
+        this.conversationTitle = conversationTitle;
+        this.messageId = messageId;
+        this.role = role;
+        this.ts = ts;
+        this.snippet = snippet;
+        this.rank = rank;
+    }
+    
+    public Long getConversationId() {
+        return conversationId;
+    }
+    
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+    
+    public String getConversationTitle() {
+        return conversationTitle;
+    }
+    
+    public void setConversationTitle(String conversationTitle) {
+        this.conversationTitle = conversationTitle;
+    }
+    
+    public Long getMessageId() {
+        return messageId;
+    }
+    
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public Instant getTs() {
+        return ts;
+    }
+    
+    public void setTs(Instant ts) {
+        this.ts = ts;
+    }
+    
+    public String getSnippet() {
+        return snippet;
+    }
+    
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+    
+    public double getRank() {
+        return rank;
+    }
+    
+    public void setRank(double rank) {
+        this.rank = rank;
+    }
+}
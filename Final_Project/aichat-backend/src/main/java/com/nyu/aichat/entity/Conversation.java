@@ -6,8 +6,10 @@ import java.time.Instant;
 @Entity
 @Table(name = "conversation")
 public class Conversation {
+    // Pooled sequence; allocationSize must match the sequence's INCREMENT BY (V4 migration)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversation_id_gen")
+    @SequenceGenerator(name = "conversation_id_gen", sequenceName = "conversation_id_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,6 +31,20 @@ public class Conversation {
     @Column(name = "is_deleted")
     private Boolean isDeleted = false;
     
+    // Maintained by linkAppendedMessage in SQL; never written through the entity
+    @Column(name = "message_count", insertable = false, updatable = false)
+    private Integer messageCount;
+    
+    @Column(name = "summary")
+    private String summary;
+    
+    // Newest message folded into the summary, as its (ts, id) position
+    @Column(name = "summary_through_ts")
+    private Instant summaryThroughTs;
+    
+    @Column(name = "summary_through_message_id")
+    private Long summaryThroughMessageId;
+    
     // Constructors
     public Conversation() {
         // Field initialization handles isDeleted default
@@ -104,5 +120,33 @@ public class Conversation {
     public void setIsDeleted(Boolean isDeleted) {
         this.isDeleted = isDeleted;
     }
+    
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+    
+    public String getSummary() {
+        return summary;
+    }
+    
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+    
+    public Instant getSummaryThroughTs() {
+        return summaryThroughTs;
+    }
+    
+    public void setSummaryThroughTs(Instant summaryThroughTs) {
+        this.summaryThroughTs = summaryThroughTs;
+    }
+    
+    public Long getSummaryThroughMessageId() {
+        return summaryThroughMessageId;
+    }
+    
+    public void setSummaryThroughMessageId(Long summaryThroughMessageId) {
+        this.summaryThroughMessageId = summaryThroughMessageId;
+    }
 }
 
@@ -19,6 +19,10 @@ public class User {
     @Column(name = "created_at")
     private Instant createdAt;
     
+    // Maintained by UserRepository in SQL; never written through the entity
+    @Column(name = "conversation_count", insertable = false, updatable = false)
+    private Integer conversationCount;
+    
     // Constructors
     public User() {
     }
@@ -67,5 +71,9 @@ public class User {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+    
+    public Integer getConversationCount() {
+        return conversationCount;
+    }
 }
 
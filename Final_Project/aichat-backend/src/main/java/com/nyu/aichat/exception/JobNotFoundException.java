@@ -0,0 +1,7 @@
+package com.nyu.aichat.exception;
+
+public class JobNotFoundException extends ApiException {
+    public JobNotFoundException(String message) {
+        super("JOB_NOT_FOUND", message);
+    }
+}
@@ -1,16 +1,86 @@
 package com.nyu.aichat.repository;
 
+import com.nyu.aichat.dto.response.ConversationDto;
+import com.nyu.aichat.dto.response.ConversationSummaryDto;
 import com.nyu.aichat.entity.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
-    List<Conversation> findByUserIdAndIsDeletedFalseOrderByCreatedAtDesc(Long userId);
+    int PREVIEW_LENGTH = 120;
+    
+    // Read-only projection for the conversation list; skips entity hydration
+    @Query("select new com.nyu.aichat.dto.response.ConversationDto(c.id, c.title, c.createdAt)"
+            + " from Conversation c where c.user.id = :userId and c.isDeleted = false"
+            + " order by c.createdAt desc")
+    List<ConversationDto> findDtosByUserId(@Param("userId") Long userId);
+    
+    // Sidebar overview in one query: each conversation joined to its last message by primary key
+    @Query("select new com.nyu.aichat.dto.response.ConversationSummaryDto(c.id, c.title, c.createdAt,"
+            + " c.messageCount, m.timestamp, substring(m.content, 1, " + PREVIEW_LENGTH + "))"
+            + " from Conversation c left join Message m on m.id = c.lastMessageId"
+            + " where c.user.id = :userId and c.isDeleted = false"
+            + " order by c.createdAt desc")
+    List<ConversationSummaryDto> findSummariesByUserId(@Param("userId") Long userId);
+    
     Optional<Conversation> findByIdAndUserIdAndIsDeletedFalse(Long id, Long userId);
-    long countByUserIdAndIsDeletedFalse(Long userId);
+    
+    /**
+     * Soft-deletes a conversation unless it already is, so concurrent deletes
+     * release the owner's counter slot only once.
+     * 
+     * @return 1 if this call deleted the conversation, 0 otherwise
+     */
+    @Modifying
+    @Query(value = "UPDATE conversation SET is_deleted = TRUE WHERE id = :conversationId AND is_deleted = FALSE",
+            nativeQuery = true)
+    int softDelete(@Param("conversationId") Long conversationId);
+    
+    /**
+     * Renames a live conversation owned by the user. Writes only the title, so it cannot
+     * overwrite the pointers, counter or summary that a concurrent send updates.
+     * 
+     * @return 1 if the conversation was renamed, 0 if it does not exist, is deleted or is not the user's
+     */
+    @Modifying
+    @Query(value = "UPDATE conversation SET title = :title"
+            + " WHERE id = :conversationId AND user_id = :userId AND is_deleted = FALSE",
+            nativeQuery = true)
+    int updateTitle(@Param("conversationId") Long conversationId, @Param("userId") Long userId,
+                    @Param("title") String title);
+    
+    // Row-locked reads (SELECT ... FOR UPDATE) that serialize appends to one conversation
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Conversation> findWithLockById(Long id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Conversation> findWithLockByIdAndUserIdAndIsDeletedFalse(Long id, Long userId);
+    
+    /**
+     * Links a freshly inserted message into its conversation in one statement:
+     * sets the previous tail's next pointer, moves the conversation's head/last pointers
+     * and increments its message counter.
+     * The caller must hold the conversation row lock.
+     * The conv_id predicates keep both message lookups in one partition when message is partitioned.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "WITH prev AS ("
+            + " UPDATE message SET next_message_id = :messageId"
+            + " WHERE conv_id = :conversationId AND id ="
+            + " (SELECT prev_message_id FROM message WHERE conv_id = :conversationId AND id = :messageId))"
+            + " UPDATE conversation SET last_message_id = :messageId,"
+            + " head_message_id = COALESCE(head_message_id, :messageId),"
+            + " message_count = message_count + 1"
+            + " WHERE id = :conversationId",
+            nativeQuery = true)
+    int linkAppendedMessage(@Param("conversationId") Long conversationId, @Param("messageId") Long messageId);
 }
-
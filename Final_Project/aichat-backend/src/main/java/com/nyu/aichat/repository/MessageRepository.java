@@ -1,15 +1,58 @@
 package com.nyu.aichat.repository;
 
+import com.nyu.aichat.dto.response.MessageDto;
 import com.nyu.aichat.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findByConversationIdOrderByTimestampAscIdAsc(Long conversationId);
-    List<Message> findTop6ByConversationIdOrderByTimestampDescIdDesc(Long conversationId);
-    long countByConversationId(Long conversationId);
+    List<Message> findTop20ByConversationIdOrderByTimestampDescIdDesc(Long conversationId);
+    
+    // Keyset pages over idx_message_conv_ts, newest first; page size comes from the Pageable.
+    // Read-only: rows are projected straight into DTOs, skipping entity hydration and dirty tracking.
+    @Query("select new com.nyu.aichat.dto.response.MessageDto(m.id, m.role, m.content, m.timestamp)"
+            + " from Message m where m.conversation.id = :conversationId"
+            + " order by m.timestamp desc, m.id desc")
+    List<MessageDto> findLatestPage(@Param("conversationId") Long conversationId, Pageable pageable);
+    
+    @Query("select new com.nyu.aichat.dto.response.MessageDto(m.id, m.role, m.content, m.timestamp)"
+            + " from Message m, Message b"
+            + " where b.id = :beforeId and b.conversation.id = :conversationId"
+            + " and m.conversation.id = :conversationId"
+            + " and m.timestamp <= b.timestamp"
+            + " and (m.timestamp < b.timestamp or m.id < b.id)"
+            + " order by m.timestamp desc, m.id desc")
+    List<MessageDto> findPageBefore(@Param("conversationId") Long conversationId,
+                                   @Param("beforeId") Long beforeId,
+                                   Pageable pageable);
+    
+    // Full-text search over idx_message_conv_content_tsv, limited to the user's live conversations.
+    // The conversation ids are collected once (an InitPlan), so the user filter is applied inside the
+    // GIN index scan rather than to every matching message afterwards.
+    // The inner query ranks and limits; ts_headline, the expensive part, only runs on the rows returned.
+    @Query(value = "SELECT hit.message_id AS messageId, hit.conversation_id AS conversationId,"
+            + " hit.title AS conversationTitle, hit.role AS role, hit.ts AS ts, hit.rank AS rank,"
+            + " ts_headline('english', hit.content, websearch_to_tsquery('english', :query),"
+            + " 'StartSel=<<, StopSel=>>, MaxWords=24, MinWords=8, MaxFragments=2') AS snippet"
+            + " FROM (SELECT m.id AS message_id, CAST(m.conv_id AS BIGINT) AS conversation_id, c.title,"
+            + " m.role, m.ts, m.content, CAST(ts_rank(m.content_tsv, q) AS DOUBLE PRECISION) AS rank"
+            + " FROM message m"
+            + " JOIN conversation c ON c.id = m.conv_id"
+            + " CROSS JOIN websearch_to_tsquery('english', :query) q"
+            + " WHERE m.conv_id = ANY (ARRAY(SELECT uc.id FROM conversation uc"
+            + " WHERE uc.user_id = :userId AND uc.is_deleted = FALSE))"
+            + " AND m.content_tsv @@ q"
+            + " ORDER BY rank DESC, m.id DESC"
+            + " LIMIT :limit) hit"
+            + " ORDER BY hit.rank DESC, hit.message_id DESC",
+            nativeQuery = true)
+    List<MessageSearchHit> searchUserMessages(@Param("userId") Long userId,
+                                              @Param("query") String query,
+                                              @Param("limit") int limit);
 }
-
@@ -0,0 +1,22 @@
+package com.nyu.aichat.repository;
+
+import java.sql.Timestamp;
+
+/**
+ * Row projection of MessageRepository.searchUserMessages.
+ */
+public interface MessageSearchHit {
+    Long getMessageId();
+    
+    Long getConversationId();
+    
+    String getConversationTitle();
+    
+    String getRole();
+    
+    Timestamp getTs();
+    
+    Double getRank();
+    
+    String getSnippet();
+}
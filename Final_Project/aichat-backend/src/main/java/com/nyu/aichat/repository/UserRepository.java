@@ -2,6 +2,9 @@ package com.nyu.aichat.repository;
 
 import com.nyu.aichat.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,5 +13,21 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+    
+    /**
+     * Increments the user's live conversation counter and returns the new value.
+     * The row stays locked until the transaction ends, so concurrent creators are serialized.
+     * Empty if the user does not exist.
+     */
+    @Query(value = "UPDATE app_user SET conversation_count = conversation_count + 1"
+            + " WHERE id = :userId RETURNING conversation_count",
+            nativeQuery = true)
+    Optional<Integer> incrementConversationCount(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query(value = "UPDATE app_user SET conversation_count = conversation_count - 1"
+            + " WHERE id = :userId AND conversation_count > 0",
+            nativeQuery = true)
+    int decrementConversationCount(@Param("userId") Long userId);
 }
 
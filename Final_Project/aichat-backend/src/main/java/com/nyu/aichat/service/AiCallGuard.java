@@ -0,0 +1,245 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.exception.AiServiceException;
+import com.nyu.aichat.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead and circuit breaker around upstream Gemini calls.
+ * At most max-concurrent calls are in flight; up to max-queue callers wait briefly for a slot
+ * and everyone else is rejected at once. After failure-threshold consecutive failures the circuit
+ * opens and calls are rejected without touching the network until open-ms has passed, then a
+ * single trial call decides whether it closes again.
+ * Rejections fail with Constants.ERROR_AI_FALLBACK, which callers already turn into a fallback reply.
+ */
+@Component
+public class AiCallGuard {
+    private static final Logger logger = LoggerFactory.getLogger(AiCallGuard.class);
+    
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+    
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitMs;
+    private final int failureThreshold;
+    private final long openMs;
+    private final Clock clock;
+    
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong bulkheadRejectedCount = new AtomicLong();
+    private final AtomicLong circuitRejectedCount = new AtomicLong();
+    
+    // Circuit state, guarded by this
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean trialInFlight;
+    
+    public AiCallGuard(@Value("${gemini.bulkhead.max-concurrent:20}") int maxConcurrent,
+                       @Value("${gemini.bulkhead.max-queue:20}") int maxQueue,
+                       @Value("${gemini.bulkhead.max-wait-ms:500}") long maxWaitMs,
+                       @Value("${gemini.circuit.failure-threshold:5}") int failureThreshold,
+                       @Value("${gemini.circuit.open-ms:30000}") long openMs,
+                       Clock clock) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitMs = maxWaitMs;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.clock = clock;
+    }
+    
+    /**
+     * Runs an upstream call under the bulkhead and circuit breaker.
+     * The permit is held until the returned future completes, and the outcome is recorded.
+     * 
+     * @param call Starts the upstream call
+     * @return The call's future, or a future already failed with AiServiceException if rejected
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        return execute(call, true);
+    }
+    
+    /**
+     * Like execute, but rejects at once instead of queueing when no slot is free.
+     * For optional extra calls (hedges) that must not wait behind, or block, primary calls.
+     * 
+     * @param call Starts the upstream call
+     * @return The call's future, or a future already failed with AiServiceException if rejected
+     */
+    public <T> CompletableFuture<T> executeIfSlotFree(Supplier<CompletableFuture<T>> call) {
+        return execute(call, false);
+    }
+    
+    private <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call, boolean mayQueue) {
+        boolean trial;
+        synchronized (this) {
+            if (!allowRequest()) {
+                circuitRejectedCount.incrementAndGet();
+                return rejected("circuit open");
+            }
+            trial = state == CircuitState.HALF_OPEN;
+        }
+        
+        if (!(mayQueue ? acquirePermit() : permits.tryAcquire())) {
+            bulkheadRejectedCount.incrementAndGet();
+            if (trial) {
+                synchronized (this) {
+                    trialInFlight = false;
+                }
+            }
+            return rejected("bulkhead full");
+        }
+        
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            recordFailure(trial);
+            throw e;
+        }
+        future.whenComplete((value, error) -> {
+            permits.release();
+            if (error == null) {
+                recordSuccess(trial);
+            } else if (error instanceof CancellationException) {
+                // Cancelled by the caller (lost hedge, expired deadline): says nothing about upstream health
+                recordCancelled(trial);
+            } else {
+                recordFailure(trial);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Takes a slot without waiting if one is free; otherwise joins the bounded wait queue,
+     * or fails immediately if the queue is full.
+     */
+    private boolean acquirePermit() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+    
+    private boolean allowRequest() {
+        if (state == CircuitState.OPEN) {
+            if (clock.millis() - openedAtMillis < openMs) {
+                return false;
+            }
+            transitionTo(CircuitState.HALF_OPEN);
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+    
+    /**
+     * Outcomes of calls admitted before the circuit opened may arrive in any state; only the
+     * half-open trial decides whether it closes again.
+     * 
+     * @param trial Whether the call was the half-open trial
+     */
+    private synchronized void recordSuccess(boolean trial) {
+        successCount.incrementAndGet();
+        consecutiveFailures = 0;
+        if (trial) {
+            trialInFlight = false;
+            if (state == CircuitState.HALF_OPEN) {
+                transitionTo(CircuitState.CLOSED);
+            }
+        }
+    }
+    
+    private synchronized void recordCancelled(boolean trial) {
+        if (trial) {
+            trialInFlight = false;
+        }
+    }
+    
+    private synchronized void recordFailure(boolean trial) {
+        failureCount.incrementAndGet();
+        consecutiveFailures++;
+        if (trial) {
+            trialInFlight = false;
+        }
+        if ((state == CircuitState.HALF_OPEN && trial)
+                || (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAtMillis = clock.millis();
+            transitionTo(CircuitState.OPEN);
+        }
+    }
+    
+    private void transitionTo(CircuitState next) {
+        logger.warn("Gemini circuit {} -> {} (consecutive failures: {})", state, next, consecutiveFailures);
+        state = next;
+    }
+    
+    private static <T> CompletableFuture<T> rejected(String reason) {
+        logger.debug("Rejected Gemini call: {}", reason);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new AiServiceException(Constants.ERROR_AI_FALLBACK));
+        return future;
+    }
+    
+    public synchronized CircuitState getState() {
+        return state;
+    }
+    
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+    
+    public int getQueued() {
+        return waiting.get();
+    }
+    
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+    
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+    
+    public long getBulkheadRejectedCount() {
+        return bulkheadRejectedCount.get();
+    }
+    
+    public long getCircuitRejectedCount() {
+        return circuitRejectedCount.get();
+    }
+}
@@ -0,0 +1,251 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.exception.AiServiceException;
+import com.nyu.aichat.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged, deadline-aware Gemini requests.
+ * When the first attempt is still running after the recent percentile latency, an identical second
+ * attempt is started and whichever succeeds first wins; the other is cancelled. Both attempts share
+ * the deadline the client sent (X-Request-Timeout-Ms), and the request fails with
+ * Constants.ERROR_AI_FALLBACK once it passes instead of waiting for the transport timeout.
+ * Hedges never queue for a bulkhead slot, so they cannot delay first attempts of other requests.
+ */
+@Component
+public class AiRequestHedger {
+    private static final Logger logger = LoggerFactory.getLogger(AiRequestHedger.class);
+    
+    private static final int LATENCY_WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 32;
+    private static final long NO_HEDGE = -1L;
+    
+    private final AiCallGuard aiCallGuard;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMs;
+    private final long deadlineReserveMs;
+    private final Clock clock;
+    
+    // First-attempt latencies in ms, guarded by this
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int sampleCount;
+    private volatile long hedgeDelayMs = NO_HEDGE;
+    
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong hedgedCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong deadlineExceededCount = new AtomicLong();
+    
+    @Autowired
+    public AiRequestHedger(AiCallGuard aiCallGuard,
+                           @Qualifier("aiRequestScheduler") ThreadPoolTaskScheduler scheduler,
+                           @Value("${gemini.hedge.enabled:false}") boolean enabled,
+                           @Value("${gemini.hedge.percentile:95}") double percentile,
+                           @Value("${gemini.hedge.min-delay-ms:300}") long minDelayMs,
+                           @Value("${gemini.request.deadline-reserve-ms:250}") long deadlineReserveMs,
+                           Clock clock) {
+        this.aiCallGuard = aiCallGuard;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMs = minDelayMs;
+        this.deadlineReserveMs = deadlineReserveMs;
+        this.clock = clock;
+    }
+    
+    /**
+     * Runs an upstream call through AiCallGuard, hedging it and enforcing the client's deadline.
+     * The call must be safe to start twice: each invocation sends an independent identical request.
+     * 
+     * @param call Starts one attempt of the upstream call
+     * @param options Per-request options carrying the client's deadline, if any
+     * @return Future completing with the first successful attempt, or failing once every attempt
+     *         has failed or the deadline has passed
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call, AiRequestOptions options) {
+        callCount.incrementAndGet();
+        long budgetMs = budgetMillis(options);
+        if (budgetMs <= 0) {
+            deadlineExceededCount.incrementAndGet();
+            return deadlineExceeded();
+        }
+        
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<Future<?>> inFlight = new CopyOnWriteArrayList<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        
+        long primaryStart = clock.millis();
+        CompletableFuture<T> primary = aiCallGuard.execute(call);
+        inFlight.add(primary);
+        primary.whenComplete((value, error) -> {
+            if (error == null || result.isDone()) {
+                // Success, or cancelled after the hedge won: either way the first attempt ran this long
+                recordLatency(elapsedMillis(primaryStart));
+            }
+            onAttemptDone(result, pending, value, error, false);
+        });
+        
+        long delayMs = hedgeDelayMs;
+        if (enabled && delayMs != NO_HEDGE && delayMs < budgetMs && !primary.isDone()) {
+            inFlight.add(scheduler.schedule(() -> startHedge(call, result, pending, inFlight),
+                    clock.instant().plusMillis(delayMs)));
+        }
+        if (options.hasDeadline()) {
+            inFlight.add(scheduler.schedule(() -> {
+                if (result.completeExceptionally(deadlineException())) {
+                    deadlineExceededCount.incrementAndGet();
+                    logger.debug("Gemini request passed the client deadline ({} ms)", budgetMs);
+                }
+            }, clock.instant().plusMillis(budgetMs)));
+        }
+        
+        result.whenComplete((value, error) -> inFlight.forEach(f -> f.cancel(false)));
+        return result;
+    }
+    
+    /**
+     * Fails the future with Constants.ERROR_AI_FALLBACK if it has not completed by the client's
+     * deadline, cancelling the underlying call. Used where hedging does not apply (streaming).
+     * 
+     * @param future The upstream call's future
+     * @param options Per-request options carrying the client's deadline, if any
+     * @return The same future, bounded by the deadline
+     */
+    public <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, AiRequestOptions options) {
+        if (!options.hasDeadline()) {
+            return future;
+        }
+        long budgetMs = budgetMillis(options);
+        if (budgetMs <= 0) {
+            future.cancel(false);
+            deadlineExceededCount.incrementAndGet();
+            return deadlineExceeded();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> timer = scheduler.schedule(() -> {
+            if (result.completeExceptionally(deadlineException())) {
+                deadlineExceededCount.incrementAndGet();
+            }
+        }, clock.instant().plusMillis(budgetMs));
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            timer.cancel(false);
+            future.cancel(false);
+        });
+        return result;
+    }
+    
+    private <T> void startHedge(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result,
+                                AtomicInteger pending, List<Future<?>> inFlight) {
+        if (result.isDone()) {
+            return;
+        }
+        pending.incrementAndGet();
+        CompletableFuture<T> hedge = aiCallGuard.executeIfSlotFree(call);
+        if (!hedge.isCompletedExceptionally()) {
+            hedgedCount.incrementAndGet();
+        }
+        inFlight.add(hedge);
+        hedge.whenComplete((value, error) -> onAttemptDone(result, pending, value, error, true));
+        if (result.isDone()) {
+            // Finished while the hedge was starting, after in-flight attempts were cancelled
+            hedge.cancel(false);
+        }
+    }
+    
+    private <T> void onAttemptDone(CompletableFuture<T> result, AtomicInteger pending,
+                                   T value, Throwable error, boolean hedge) {
+        if (error == null) {
+            if (result.complete(value) && hedge) {
+                hedgeWinCount.incrementAndGet();
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(error);
+        }
+    }
+    
+    /**
+     * Time left for the upstream call: the client's remaining time minus what is kept back for
+     * saving the reply and writing the response. Long.MAX_VALUE without a client deadline.
+     */
+    private long budgetMillis(AiRequestOptions options) {
+        return options.hasDeadline() ? options.remainingMillis() - deadlineReserveMs : Long.MAX_VALUE;
+    }
+    
+    private synchronized void recordLatency(long millis) {
+        latencies[sampleCount % LATENCY_WINDOW] = millis;
+        sampleCount++;
+        if (sampleCount >= MIN_SAMPLES && (sampleCount == MIN_SAMPLES || sampleCount % RECOMPUTE_EVERY == 0)) {
+            long[] window = Arrays.copyOf(latencies, Math.min(sampleCount, LATENCY_WINDOW));
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile / 100.0 * window.length) - 1;
+            long quantile = window[Math.max(0, Math.min(index, window.length - 1))];
+            hedgeDelayMs = Math.max(minDelayMs, quantile);
+        }
+    }
+    
+    private long elapsedMillis(long startMillis) {
+        // Never negative, even if the wall clock is set back mid-call
+        return Math.max(0L, clock.millis() - startMillis);
+    }
+    
+    private static AiServiceException deadlineException() {
+        return new AiServiceException(Constants.ERROR_AI_FALLBACK,
+                new TimeoutException("Client request deadline exceeded"));
+    }
+    
+    private static <T> CompletableFuture<T> deadlineExceeded() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(deadlineException());
+        return future;
+    }
+    
+    /**
+     * Current hedge delay in milliseconds, or -1 while there are too few samples to hedge.
+     */
+    public long getHedgeDelayMs() {
+        return hedgeDelayMs;
+    }
+    
+    public long getCallCount() {
+        return callCount.get();
+    }
+    
+    public long getHedgedCount() {
+        return hedgedCount.get();
+    }
+    
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+    
+    public long getDeadlineExceededCount() {
+        return deadlineExceededCount.get();
+    }
+}
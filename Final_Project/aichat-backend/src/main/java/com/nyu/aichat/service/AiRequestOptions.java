@@ -0,0 +1,81 @@
+package com.nyu.aichat.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request options for AI generation, taken from request headers.
+ */
+public class AiRequestOptions {
+    public static final AiRequestOptions DEFAULT = new AiRequestOptions(false);
+    
+    private final boolean bypassCache;
+    private final boolean hasDeadline;
+    private final long deadlineNanos;   // System.nanoTime() value, only set if hasDeadline
+    
+    public AiRequestOptions(boolean bypassCache) {
+        this(bypassCache, false, 0L);
+    }
+    
+    private AiRequestOptions(boolean bypassCache, boolean hasDeadline, long deadlineNanos) {
+        this.bypassCache = bypassCache;
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    /**
+     * Builds options from a Cache-Control request header.
+     * "no-cache" or "no-store" skip the response cache for this request.
+     * 
+     * @param cacheControl The Cache-Control header value, may be null
+     * @return The request options
+     */
+    public static AiRequestOptions fromCacheControl(String cacheControl) {
+        return fromHeaders(cacheControl, null);
+    }
+    
+    /**
+     * Builds options from the Cache-Control and X-Request-Timeout-Ms request headers.
+     * The timeout is the client's own timeout; the deadline starts counting now, so time spent
+     * before the Gemini call comes out of the same budget.
+     * 
+     * @param cacheControl The Cache-Control header value, may be null
+     * @param requestTimeoutMs The client's timeout in milliseconds, may be null
+     * @return The request options
+     */
+    public static AiRequestOptions fromHeaders(String cacheControl, Long requestTimeoutMs) {
+        boolean bypassCache = false;
+        if (cacheControl != null) {
+            String directives = cacheControl.toLowerCase();
+            bypassCache = directives.contains("no-cache") || directives.contains("no-store");
+        }
+        if (requestTimeoutMs == null) {
+            return bypassCache ? new AiRequestOptions(true) : DEFAULT;
+        }
+        return new AiRequestOptions(bypassCache, true,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMs));
+    }
+    
+    /**
+     * The same options without the client's deadline, for upstream calls shared by callers
+     * with different deadlines.
+     */
+    public AiRequestOptions withoutDeadline() {
+        return hasDeadline ? new AiRequestOptions(bypassCache) : this;
+    }
+    
+    public boolean isBypassCache() {
+        return bypassCache;
+    }
+    
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+    
+    /**
+     * Milliseconds left until the client's deadline; negative once it has passed.
+     * Only meaningful if hasDeadline().
+     */
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+}
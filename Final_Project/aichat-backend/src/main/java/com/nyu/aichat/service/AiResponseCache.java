@@ -0,0 +1,222 @@
+package com.nyu.aichat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of AI replies, keyed by the SHA-256 of the final prompt.
+ * Concurrent requests for the same prompt share one upstream call (single-flight).
+ * Only successful replies are cached; failed or cancelled calls are dropped from single-flight.
+ * Off by default (chat.response-cache.enabled).
+ */
+@Component
+public class AiResponseCache {
+    private final boolean enabled;
+    private final Cache<String, String> cache;
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    
+    public AiResponseCache(@Value("${chat.response-cache.enabled:false}") boolean enabled,
+                           @Value("${chat.response-cache.max-entries:1000}") long maxEntries,
+                           @Value("${chat.response-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+    
+    /**
+     * @param options Per-request options
+     * @return true if get() may answer or share the call for these options; otherwise the
+     *         caller should call upstream directly
+     */
+    public boolean appliesTo(AiRequestOptions options) {
+        return enabled && !options.isBypassCache();
+    }
+    
+    /**
+     * Returns the cached reply for a prompt, joins an identical call already in flight,
+     * or starts the upstream call and caches its result.
+     * The upstream call is cancelled once every caller sharing it has cancelled its copy.
+     * 
+     * @param prompt The final prompt sent upstream
+     * @param options Per-request options; bypassCache skips both the cache and single-flight
+     * @param upstream Starts the upstream call; it is shared, so it must not carry this caller's deadline
+     * @return Future completing with the reply: each caller gets its own copy, so one caller
+     *         cancelling it, or applying its deadline to it, does not affect the others
+     */
+    public CompletableFuture<String> get(String prompt, AiRequestOptions options,
+                                         Supplier<CompletableFuture<String>> upstream) {
+        if (!appliesTo(options)) {
+            return upstream.get();
+        }
+        String key = keyOf(prompt);
+        String cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        while (true) {
+            Flight flight = new Flight();
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return startFlight(key, flight, upstream);
+            }
+            if (existing.join()) {
+                coalescedCount.incrementAndGet();
+                return copyOf(key, existing);
+            }
+            // Every caller of that call has left and it is being cancelled: start a new one
+            inFlight.remove(key, existing);
+        }
+    }
+    
+    private CompletableFuture<String> startFlight(String key, Flight flight,
+                                                  Supplier<CompletableFuture<String>> upstream) {
+        missCount.incrementAndGet();
+        flight.join();
+        try {
+            flight.upstream = upstream.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, flight);
+            flight.reply.completeExceptionally(e);
+            throw e;
+        }
+        flight.upstream.whenComplete((reply, error) -> {
+            // Failures and cancellations are never cached
+            if (error == null) {
+                cache.put(key, reply);
+            }
+            inFlight.remove(key, flight);
+            if (error == null) {
+                flight.reply.complete(reply);
+            } else {
+                flight.reply.completeExceptionally(error);
+            }
+        });
+        return copyOf(key, flight);
+    }
+    
+    /**
+     * A dependent copy of the shared reply, so one caller cancelling cannot fail the others.
+     * The last caller to cancel cancels the upstream call as well.
+     */
+    private CompletableFuture<String> copyOf(String key, Flight flight) {
+        CompletableFuture<String> copy = flight.reply.thenApply(reply -> reply);
+        copy.whenComplete((reply, error) -> {
+            if (copy.isCancelled() && flight.leave()) {
+                inFlight.remove(key, flight);
+                flight.upstream.cancel(false);
+            }
+        });
+        return copy;
+    }
+    
+    /**
+     * Returns the cached reply for a prompt without starting a call, for the streaming path.
+     * 
+     * @param prompt The final prompt
+     * @param options Per-request options
+     * @return The cached reply, or null on a miss or when the cache is bypassed
+     */
+    public String getIfPresent(String prompt, AiRequestOptions options) {
+        if (!enabled || options.isBypassCache()) {
+            return null;
+        }
+        String cached = cache.getIfPresent(keyOf(prompt));
+        if (cached != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return cached;
+    }
+    
+    public void put(String prompt, String reply) {
+        if (enabled) {
+            cache.put(keyOf(prompt), reply);
+        }
+    }
+    
+    private static String keyOf(String prompt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(prompt.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public long getHitCount() {
+        return hitCount.get();
+    }
+    
+    public long getMissCount() {
+        return missCount.get();
+    }
+    
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+    
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+    
+    /**
+     * One upstream call shared by every caller that asked for the same prompt while it ran.
+     */
+    private static final class Flight {
+        private final CompletableFuture<String> reply = new CompletableFuture<>();
+        private volatile CompletableFuture<String> upstream;
+        
+        // Guarded by this
+        private int callers;
+        private boolean abandoned;
+        
+        /**
+         * @return false if every caller has already left and the call is being cancelled
+         */
+        synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            callers++;
+            return true;
+        }
+        
+        /**
+         * @return true if this was the last caller and the call is still running, so it should be cancelled
+         */
+        synchronized boolean leave() {
+            callers--;
+            if (callers == 0 && !reply.isDone()) {
+                abandoned = true;
+                return true;
+            }
+            return false;
+        }
+    }
+}
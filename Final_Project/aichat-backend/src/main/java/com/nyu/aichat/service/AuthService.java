@@ -12,11 +12,17 @@ import com.nyu.aichat.util.ValidationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service for user authentication operations (signup and login).
+ * BCrypt work runs on the bounded password hash pool, never on the request thread.
  */
 @Service
 public class AuthService {
@@ -24,22 +30,34 @@ public class AuthService {
     
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor passwordHashExecutor;
+    private final VerifiedCredentialCache verifiedCredentialCache;
+    private final TokenService tokenService;
     
     @Autowired
-    public AuthService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder) {
+    public AuthService(UserRepository userRepository,
+                       BCryptPasswordEncoder passwordEncoder,
+                       @Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor passwordHashExecutor,
+                       VerifiedCredentialCache verifiedCredentialCache,
+                       TokenService tokenService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashExecutor = passwordHashExecutor;
+        this.verifiedCredentialCache = verifiedCredentialCache;
+        this.tokenService = tokenService;
     }
     
     /**
      * Creates a new user account.
+     * Input checks run on the calling thread; hashing and the insert run on the hash pool.
      * 
      * @param username The desired username
      * @param rawPassword The plain text password (will be hashed)
-     * @return LoginResponse containing user ID and username
+     * @return Future completing with LoginResponse containing user ID, username and session token
      * @throws ValidationException if username/password invalid or username already exists
+     * @throws TaskRejectedException if the password hash pool is saturated
      */
-    public LoginResponse signup(String username, String rawPassword) {
+    public CompletableFuture<LoginResponse> signup(String username, String rawPassword) {
         // Validate input
         ValidationUtil.validateUsername(username);
         ValidationUtil.validatePassword(rawPassword);
@@ -50,27 +68,30 @@ public class AuthService {
             throw new ValidationException(Constants.ERROR_USERNAME_EXISTS);
         }
         
-        // Hash password
-        String hashedPassword = passwordEncoder.encode(rawPassword);
-        
-        // Create user (@PrePersist handles createdAt)
-        User user = new User(username, hashedPassword);
-        user = userRepository.save(user);
-        
-        logger.info("New user created: {}", username);
-        return EntityMapper.toLoginResponse(user);
+        return CompletableFuture.supplyAsync(() -> {
+            // Hash password
+            String hashedPassword = passwordEncoder.encode(rawPassword);
+            
+            // Create user (@PrePersist handles createdAt)
+            User user = new User(username, hashedPassword);
+            user = userRepository.save(user);
+            
+            logger.info("New user created: {}", username);
+            return toLoginResponse(user);
+        }, passwordHashExecutor);
     }
     
     /**
      * Authenticates a user and returns their login information.
+     * Credentials verified within the last few minutes skip BCrypt; otherwise the check runs on the hash pool.
      * 
      * @param username The username
      * @param rawPassword The plain text password
-     * @return LoginResponse containing user ID and username
+     * @return Future completing with LoginResponse, or failing with UnauthorizedException if password is incorrect
      * @throws UserNotFoundException if username doesn't exist
-     * @throws UnauthorizedException if password is incorrect
+     * @throws TaskRejectedException if the password hash pool is saturated
      */
-    public LoginResponse login(String username, String rawPassword) {
+    public CompletableFuture<LoginResponse> login(String username, String rawPassword) {
         // Find user
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> {
@@ -78,14 +99,42 @@ public class AuthService {
                     return new UserNotFoundException("No user exists with this username");
                 });
         
-        // Verify password
-        if (!passwordEncoder.matches(rawPassword, user.getPassHash())) {
-            logger.warn("Failed login attempt for username: {}", username);
-            throw new UnauthorizedException(Constants.ERROR_INVALID_CREDENTIALS);
+        if (verifiedCredentialCache.isVerified(user, rawPassword)) {
+            logger.info("User logged in successfully (cached verification): {}", username);
+            return CompletableFuture.completedFuture(toLoginResponse(user));
         }
         
-        logger.info("User logged in successfully: {}", username);
-        return EntityMapper.toLoginResponse(user);
+        return CompletableFuture.supplyAsync(() -> {
+            // Verify password
+            if (!passwordEncoder.matches(rawPassword, user.getPassHash())) {
+                logger.warn("Failed login attempt for username: {}", username);
+                throw new UnauthorizedException(Constants.ERROR_INVALID_CREDENTIALS);
+            }
+            
+            User verifiedUser = upgradeHashIfNeeded(user, rawPassword);
+            verifiedCredentialCache.recordVerified(verifiedUser, rawPassword);
+            
+            logger.info("User logged in successfully: {}", username);
+            return toLoginResponse(verifiedUser);
+        }, passwordHashExecutor);
+    }
+    
+    private LoginResponse toLoginResponse(User user) {
+        IssuedToken token = tokenService.issue(user.getId());
+        return EntityMapper.toLoginResponse(user, token.getToken(), token.getExpiresAt());
+    }
+    
+    /**
+     * Re-hashes the password at the configured cost if the stored hash uses a lower one,
+     * so raising auth.bcrypt.strength takes effect as users log in.
+     */
+    private User upgradeHashIfNeeded(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassHash())) {
+            return user;
+        }
+        user.setPassHash(passwordEncoder.encode(rawPassword));
+        logger.info("Upgraded password hash cost for user {}", user.getUsername());
+        return userRepository.save(user);
     }
 }
 
@@ -0,0 +1,100 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.dto.response.ErrorResponse;
+import com.nyu.aichat.dto.response.MessageDto;
+import com.nyu.aichat.exception.ApiException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An asynchronous message send: its state while queued and running, then the reply or error.
+ * Kept in memory by ChatJobService on the node that accepted the send.
+ */
+public class ChatJob {
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+    
+    private final String id;
+    private final Long userId;
+    private final Long conversationId;
+    private final CompletableFuture<ChatJob> finished = new CompletableFuture<>();
+    
+    private volatile Status status = Status.PENDING;
+    private volatile MessageDto assistantMessage;
+    private volatile ErrorResponse error;
+    
+    public ChatJob(String id, Long userId, Long conversationId) {
+        this.id = id;
+        this.userId = userId;
+        this.conversationId = conversationId;
+    }
+    
+    void markRunning() {
+        status = Status.RUNNING;
+    }
+    
+    /**
+     * Records the outcome of the send. Gemini failures never get here as errors: like a synchronous
+     * send, they complete with the fallback reply.
+     */
+    void finish(MessageDto reply, Throwable failure) {
+        if (failure == null) {
+            assistantMessage = reply;
+            status = Status.COMPLETED;
+        } else {
+            error = toErrorResponse(failure instanceof CompletionException ? failure.getCause() : failure);
+            status = Status.FAILED;
+        }
+        finished.complete(this);
+    }
+    
+    /**
+     * Same codes and messages as GlobalExceptionHandler would have returned for a synchronous send.
+     */
+    private static ErrorResponse toErrorResponse(Throwable failure) {
+        if (failure instanceof ApiException) {
+            ApiException apiException = (ApiException) failure;
+            return new ErrorResponse(apiException.getErrorCode(), apiException.getMessage());
+        }
+        if (failure instanceof RejectedExecutionException) {
+            return new ErrorResponse("SERVICE_BUSY", "Server is busy, please retry shortly");
+        }
+        return new ErrorResponse("INTERNAL_ERROR", "An unexpected error occurred");
+    }
+    
+    public boolean isFinished() {
+        return finished.isDone();
+    }
+    
+    /**
+     * @return Future completing with this job once it has completed or failed
+     */
+    public CompletableFuture<ChatJob> whenFinished() {
+        return finished;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public Long getConversationId() {
+        return conversationId;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public MessageDto getAssistantMessage() {
+        return assistantMessage;
+    }
+    
+    public ErrorResponse getError() {
+        return error;
+    }
+}
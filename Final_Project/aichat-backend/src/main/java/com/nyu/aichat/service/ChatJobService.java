@@ -0,0 +1,79 @@
+package com.nyu.aichat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nyu.aichat.exception.JobNotFoundException;
+import com.nyu.aichat.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous message sends. A send is accepted as a ChatJob and runs on the chat job pool;
+ * clients poll or long-poll the job for the reply. Jobs live in memory on the accepting node and
+ * expire ttl-minutes after they were submitted or finished.
+ */
+@Service
+public class ChatJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ChatJobService.class);
+    
+    private final ChatService chatService;
+    private final Cache<String, ChatJob> jobs;
+    
+    @Autowired
+    public ChatJobService(ChatService chatService,
+                          @Value("${chat.jobs.max-entries:10000}") long maxEntries,
+                          @Value("${chat.jobs.ttl-minutes:10}") long ttlMinutes) {
+        this.chatService = chatService;
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+    
+    /**
+     * Accepts a message send and returns its job without waiting for the reply.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param userId The ID of the user sending the message
+     * @param userText The message text from the user
+     * @param options Per-request AI options
+     * @return The pending job
+     * @throws UnauthorizedException if user doesn't own the conversation
+     * @throws TaskRejectedException if the chat job pool is full
+     */
+    public ChatJob submitMessage(Long conversationId, Long userId, String userText, AiRequestOptions options) {
+        ChatJob job = new ChatJob(UUID.randomUUID().toString(), userId, conversationId);
+        chatService.submitUserMessage(conversationId, userId, userText, options, job::markRunning)
+                .whenComplete((reply, error) -> {
+                    job.finish(reply, error);
+                    // Re-put so a finished job stays readable for the full TTL
+                    jobs.asMap().replace(job.getId(), job);
+                    if (error != null) {
+                        logger.warn("Async send {} for conversation {} failed: {}",
+                                job.getId(), conversationId, job.getError().getError());
+                    }
+                });
+        jobs.put(job.getId(), job);
+        return job;
+    }
+    
+    /**
+     * @param jobId The job ID
+     * @param userId The ID of the user asking
+     * @return The job
+     * @throws JobNotFoundException if the job is unknown, expired or belongs to another user
+     */
+    public ChatJob getJob(String jobId, Long userId) {
+        ChatJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new JobNotFoundException(Constants.ERROR_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,109 @@
+package com.nyu.aichat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the message exchange, published with percentile histograms
+ * so p95/p99 can be derived per stage.
+ * 
+ * chat.exchange.stage{stage}  ownership (locked read, also carries message_count), context,
+ *                             user_insert, assistant_insert
+ * chat.gemini.call{mode,outcome}  the Gemini call, outcome "success" or "fallback"
+ * chat.exchange{mode}          the whole exchange, including both commits
+ * chat.gemini.prompt.chars / chat.gemini.response.chars / chat.ai.fallback{mode}
+ */
+@Component
+public class ChatMetrics {
+    public static final String STAGE_OWNERSHIP = "ownership";
+    public static final String STAGE_CONTEXT = "context";
+    public static final String STAGE_USER_INSERT = "user_insert";
+    public static final String STAGE_ASSISTANT_INSERT = "assistant_insert";
+    
+    public static final String MODE_SYNC = "sync";
+    public static final String MODE_STREAM = "stream";
+    public static final String MODE_ASYNC = "async";
+    
+    private static final Duration MAX_EXPECTED_AI_LATENCY = Duration.ofMinutes(2);
+    
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new HashMap<>();
+    private final DistributionSummary promptChars;
+    private final DistributionSummary responseChars;
+    
+    @Autowired
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (String stage : new String[] {STAGE_OWNERSHIP, STAGE_CONTEXT, STAGE_USER_INSERT, STAGE_ASSISTANT_INSERT}) {
+            stageTimers.put(stage, Timer.builder("chat.exchange.stage")
+                    .description("Time spent in one stage of a message exchange")
+                    .tag("stage", stage)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.promptChars = DistributionSummary.builder("chat.gemini.prompt.chars")
+                .description("Characters in prompts built for Gemini")
+                .baseUnit("characters")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.responseChars = DistributionSummary.builder("chat.gemini.response.chars")
+                .description("Characters in Gemini replies")
+                .baseUnit("characters")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+    
+    /**
+     * Runs the action and records its duration under the given stage, also when it throws.
+     */
+    public <T> T timeStage(String stage, Supplier<T> action) {
+        return stageTimers.get(stage).record(action);
+    }
+    
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+    
+    public void recordGeminiCall(Timer.Sample sample, String mode, boolean fallback) {
+        sample.stop(Timer.builder("chat.gemini.call")
+                .description("Gemini call latency as seen by ChatService, including guard queueing")
+                .tag("mode", mode)
+                .tag("outcome", fallback ? "fallback" : "success")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED_AI_LATENCY)
+                .register(registry));
+        if (fallback) {
+            Counter.builder("chat.ai.fallback")
+                    .description("Replies replaced by the fallback message")
+                    .tag("mode", mode)
+                    .register(registry)
+                    .increment();
+        }
+    }
+    
+    public void recordExchange(Timer.Sample sample, String mode) {
+        sample.stop(Timer.builder("chat.exchange")
+                .description("Whole message exchange, from validation to the saved reply")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED_AI_LATENCY)
+                .register(registry));
+    }
+    
+    public void recordPromptChars(int chars) {
+        promptChars.record(chars);
+    }
+    
+    public void recordResponseChars(int chars) {
+        responseChars.record(chars);
+    }
+}
@@ -1,7 +1,9 @@
 package com.nyu.aichat.service;
 
 import com.nyu.aichat.dto.response.ConversationDto;
+import com.nyu.aichat.dto.response.ConversationSummaryDto;
 import com.nyu.aichat.dto.response.MessageDto;
+import com.nyu.aichat.dto.response.MessagePageResponse;
 import com.nyu.aichat.entity.Conversation;
 import com.nyu.aichat.entity.Message;
 import com.nyu.aichat.entity.MessageRole;
@@ -15,15 +17,25 @@ import com.nyu.aichat.repository.UserRepository;
 import com.nyu.aichat.util.Constants;
 import com.nyu.aichat.util.EntityMapper;
 import com.nyu.aichat.util.ValidationUtil;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Service for managing conversations and messages.
@@ -37,16 +49,37 @@ public class ChatService {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final GeminiService geminiService;
+    private final MessagePersistenceService messagePersistenceService;
+    private final ContextWindowCache contextWindowCache;
+    private final OwnershipCache ownershipCache;
+    private final ChatMetrics chatMetrics;
+    private final KeyedSerialExecutor<Long> conversationSendQueue;
+    private final ThreadPoolTaskExecutor chatJobExecutor;
+    private final ThreadPoolTaskExecutor chatStreamExecutor;
     
     @Autowired
     public ChatService(ConversationRepository conversationRepository,
                       MessageRepository messageRepository,
                       UserRepository userRepository,
-                      GeminiService geminiService) {
+                      GeminiService geminiService,
+                      MessagePersistenceService messagePersistenceService,
+                      ContextWindowCache contextWindowCache,
+                      OwnershipCache ownershipCache,
+                      ChatMetrics chatMetrics,
+                      KeyedSerialExecutor<Long> conversationSendQueue,
+                      @Qualifier("chatJobExecutor") ThreadPoolTaskExecutor chatJobExecutor,
+                      @Qualifier("chatStreamExecutor") ThreadPoolTaskExecutor chatStreamExecutor) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
         this.geminiService = geminiService;
+        this.messagePersistenceService = messagePersistenceService;
+        this.contextWindowCache = contextWindowCache;
+        this.ownershipCache = ownershipCache;
+        this.chatMetrics = chatMetrics;
+        this.conversationSendQueue = conversationSendQueue;
+        this.chatJobExecutor = chatJobExecutor;
+        this.chatStreamExecutor = chatStreamExecutor;
     }
     
     /**
@@ -63,16 +96,16 @@ public class ChatService {
             throw new ValidationException(Constants.ERROR_USER_ID_NULL);
         }
         
-        // Validate user exists
-        User user = userRepository.findById(userId)
+        // Take a slot on the user's counter; also validates the user exists.
+        // Exceeding the limit throws and rolls the increment back.
+        int newCount = userRepository.incrementConversationCount(userId)
                 .orElseThrow(() -> {
                     logger.warn("Attempt to create conversation for non-existent user: {}", userId);
                     return new ValidationException(Constants.ERROR_USER_NOT_FOUND);
                 });
-        
-        // Check conversation limit
-        long currentCount = conversationRepository.countByUserIdAndIsDeletedFalse(userId);
+        long currentCount = newCount - 1;
         ValidationUtil.validateConversationLimit(currentCount);
+        User user = userRepository.getReferenceById(userId);
         
         // Set default title if needed
         if (title == null || title.trim().isEmpty()) {
@@ -100,142 +133,225 @@ public class ChatService {
             throw new ValidationException(Constants.ERROR_USER_ID_NULL);
         }
         
-        List<Conversation> conversations = conversationRepository
-                .findByUserIdAndIsDeletedFalseOrderByCreatedAtDesc(userId);
+        return conversationRepository.findDtosByUserId(userId);
+    }
+    
+    /**
+     * Retrieves all non-deleted conversations for a user with message count, last activity
+     * and a preview of the last message, in a single query.
+     * 
+     * @param userId The ID of the user
+     * @return List of ConversationSummaryDto objects, newest conversation first
+     */
+    @Transactional(readOnly = true)
+    public List<ConversationSummaryDto> getUserConversationSummaries(Long userId) {
+        if (userId == null) {
+            throw new ValidationException(Constants.ERROR_USER_ID_NULL);
+        }
         
-        return conversations.stream()
-                .map(EntityMapper::toDto)
-                .collect(Collectors.toList());
+        return conversationRepository.findSummariesByUserId(userId);
     }
     
     /**
-     * Retrieves the full message history for a conversation.
+     * Retrieves one page of message history using keyset pagination.
+     * Memory per call is bounded by the page size, whatever the conversation length.
      * 
      * @param conversationId The ID of the conversation
      * @param userId The ID of the user (for ownership validation)
-     * @return List of MessageDto objects in chronological order
+     * @param before Only messages older than this message ID are returned; null for the latest page
+     * @param limit Maximum number of messages in the page
+     * @return Page of MessageDto objects in chronological order, with the cursor for the next older page
      * @throws UnauthorizedException if user doesn't own the conversation
      */
     @Transactional(readOnly = true)
-    public List<MessageDto> getConversationHistory(Long conversationId, Long userId) {
+    public MessagePageResponse getConversationHistoryPage(Long conversationId, Long userId, Long before, int limit) {
         if (conversationId == null) {
             throw new ValidationException(Constants.ERROR_CONVERSATION_ID_NULL);
         }
         if (userId == null) {
             throw new ValidationException(Constants.ERROR_USER_ID_NULL);
         }
+        ValidationUtil.validatePageLimit(limit);
         
         // Validate ownership
         validateConversationOwnership(conversationId, userId);
         
-        // Get messages ordered by timestamp
-        List<Message> messages = messageRepository.findByConversationIdOrderByTimestampAscIdAsc(conversationId);
+        // Fetch one extra row to learn whether an older page exists
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<MessageDto> newestFirst = before == null
+                ? messageRepository.findLatestPage(conversationId, pageRequest)
+                : messageRepository.findPageBefore(conversationId, before, pageRequest);
+        
+        boolean hasMore = newestFirst.size() > limit;
+        List<MessageDto> messages = new ArrayList<>(hasMore ? newestFirst.subList(0, limit) : newestFirst);
+        Long nextCursor = hasMore ? messages.get(messages.size() - 1).getId() : null;
+        Collections.reverse(messages);
         
-        return messages.stream()
-                .map(EntityMapper::toDto)
-                .collect(Collectors.toList());
+        return new MessagePageResponse(messages, nextCursor);
     }
     
     /**
      * Sends a user message, generates an AI reply, and persists both messages.
+     * Runs as three phases: a short transaction that saves the user message, the Gemini
+     * call outside any transaction, and a second short transaction that saves the reply.
+     * Sends to the same conversation run one at a time, in arrival order, so each reply
+     * directly follows its own user message. The exchange runs on the chat job pool, and a send
+     * waiting for its turn holds no thread, so the request thread is never blocked.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param userId The ID of the user sending the message
+     * @param userText The message text from the user
+     * @param options Per-request AI options
+     * @return Future completing with the assistant's reply, or failing with UnauthorizedException if user
+     *         doesn't own the conversation, ValidationException if message limit exceeded, or
+     *         TaskRejectedException if an earlier send to the conversation is still running after max-wait-ms
+     * @throws ValidationException if the message text is invalid
+     * @throws TaskRejectedException if the chat job pool is full
+     */
+    public CompletableFuture<MessageDto> sendUserMessageAndGetAiReply(Long conversationId, Long userId,
+                                                                     String userText, AiRequestOptions options) {
+        validateSendRequest(conversationId, userId, userText);
+        return conversationSendQueue.submitWithinMaxWait(conversationId,
+                () -> exchangeMessages(conversationId, userId, userText, options, ChatMetrics.MODE_SYNC),
+                chatJobExecutor);
+    }
+    
+    /**
+     * Queues a message exchange on the chat job pool and returns without waiting for it.
+     * Ownership is checked before queueing; the user message is saved when the exchange
+     * reaches its turn among sends to the conversation, which is at once if none is running.
      * 
      * @param conversationId The ID of the conversation
      * @param userId The ID of the user sending the message
      * @param userText The message text from the user
-     * @return MessageDto containing the assistant's reply
+     * @param options Per-request AI options
+     * @param onStart Called on the worker thread just before the exchange starts
+     * @return Future completing with the assistant's reply, or failing like sendUserMessageAndGetAiReply
      * @throws UnauthorizedException if user doesn't own the conversation
-     * @throws ValidationException if message limit exceeded
+     * @throws TaskRejectedException if the chat job pool is full
      */
-    @Transactional
-    public MessageDto sendUserMessageAndGetAiReply(Long conversationId, Long userId, String userText) {
-        if (conversationId == null) {
-            throw new ValidationException(Constants.ERROR_CONVERSATION_ID_NULL);
-        }
-        if (userId == null) {
-            throw new ValidationException(Constants.ERROR_USER_ID_NULL);
-        }
-        if (userText == null || userText.trim().isEmpty()) {
-            throw new ValidationException(Constants.ERROR_MESSAGE_TEXT_NULL);
-        }
-        
-        // Validate ownership
+    public CompletableFuture<MessageDto> submitUserMessage(Long conversationId, Long userId, String userText,
+                                                           AiRequestOptions options, Runnable onStart) {
+        validateSendRequest(conversationId, userId, userText);
         validateConversationOwnership(conversationId, userId);
+        try {
+            return conversationSendQueue.submit(conversationId, () -> {
+                onStart.run();
+                return exchangeMessages(conversationId, userId, userText, options, ChatMetrics.MODE_ASYNC);
+            }, chatJobExecutor);
+        } catch (RejectedExecutionException e) {
+            // The pool refused the exchange outright: answer 503 now, like the other worker pools.
+            // Any later failure, including a rejection after queueing, fails the returned future
+            throw new TaskRejectedException("Chat job pool is full", e);
+        }
+    }
+    
+    private MessageDto exchangeMessages(Long conversationId, Long userId, String userText,
+                                        AiRequestOptions options, String mode) {
+        Timer.Sample exchangeSample = chatMetrics.startTimer();
         
-        // Validate message limit
-        long messageCount = messageRepository.countByConversationId(conversationId);
-        ValidationUtil.validateMessageLimit(messageCount);
-        
-        // Get context messages BEFORE adding user message (last 6 existing messages)
-        // These will be used to provide context to Gemini, then we add the current user message
-        List<Message> contextMessages = messageRepository
-                .findTop6ByConversationIdOrderByTimestampDescIdDesc(conversationId);
-        
-        // Add user message
-        Message userMessage = addMessage(conversationId, MessageRole.USER, userText);
+        PendingExchange exchange = messagePersistenceService.beginExchange(conversationId, userId, userText);
         
         // Generate AI response
         // Note: contextMessages contains previous messages, userText is the current message
         // buildPrompt will combine them properly
         String aiResponseText;
+        Timer.Sample geminiSample = chatMetrics.startTimer();
         try {
-            aiResponseText = geminiService.generateResponse(userText, contextMessages);
+            aiResponseText = geminiService.generateResponse(userText, exchange.getSummary(),
+                    exchange.getContextMessages(), options);
+            chatMetrics.recordGeminiCall(geminiSample, mode, false);
+            chatMetrics.recordResponseChars(aiResponseText.length());
         } catch (Exception e) {
             logger.error("Gemini API error while generating response for conversation {}", conversationId, e);
+            chatMetrics.recordGeminiCall(geminiSample, mode, true);
             aiResponseText = Constants.ERROR_AI_FALLBACK;
         }
         
         // Add assistant message
-        Message assistantMessage = addMessage(conversationId, MessageRole.ASSISTANT, aiResponseText);
+        Message assistantMessage = appendAssistantMessage(conversationId, aiResponseText);
         
+        chatMetrics.recordExchange(exchangeSample, mode);
         logger.info("Message exchange completed for conversation {}", conversationId);
         return EntityMapper.toDto(assistantMessage);
     }
     
     /**
-     * Adds a message to a conversation and maintains linked-list integrity.
-     * This method is transactional to ensure atomicity of linked-list updates.
+     * Sends a user message and streams the AI reply chunk by chunk.
+     * The assistant message is persisted once, after the stream has finished.
+     * No transaction is held while the stream is open. Ordered with other sends to the
+     * conversation like sendUserMessageAndGetAiReply, and run on the stream pool.
      * 
      * @param conversationId The ID of the conversation
-     * @param role The role of the message sender (USER or ASSISTANT)
-     * @param content The message content
-     * @return The persisted Message entity
-     * @throws ConversationNotFoundException if conversation doesn't exist
+     * @param userId The ID of the user sending the message
+     * @param userText The message text from the user
+     * @param options Per-request AI options
+     * @param onChunk Receives raw reply chunks as they arrive from Gemini, on a stream pool thread
+     * @return Future completing with the persisted assistant reply, or failing like sendUserMessageAndGetAiReply
+     * @throws ValidationException if the message text is invalid
+     * @throws TaskRejectedException if the stream pool is full
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    private Message addMessage(Long conversationId, MessageRole role, String content) {
-        // Load conversation
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> {
-                    logger.error("Attempt to add message to non-existent conversation: {}", conversationId);
-                    return new ConversationNotFoundException(Constants.ERROR_CONVERSATION_NOT_FOUND);
-                });
+    public CompletableFuture<MessageDto> streamUserMessageAndGetAiReply(Long conversationId, Long userId,
+                                                                       String userText, AiRequestOptions options,
+                                                                       Consumer<String> onChunk) {
+        validateSendRequest(conversationId, userId, userText);
+        return conversationSendQueue.submitWithinMaxWait(conversationId,
+                () -> streamExchangeMessages(conversationId, userId, userText, options, onChunk),
+                chatStreamExecutor);
+    }
+    
+    private MessageDto streamExchangeMessages(Long conversationId, Long userId, String userText,
+                                              AiRequestOptions options, Consumer<String> onChunk) {
+        Timer.Sample exchangeSample = chatMetrics.startTimer();
         
-        // Create new message
-        Message newMessage = new Message(conversation, role, content);
-        newMessage.setPrevMessageId(conversation.getLastMessageId());
-        newMessage.setNextMessageId(null);
-        newMessage = messageRepository.save(newMessage);
+        PendingExchange exchange = messagePersistenceService.beginExchange(conversationId, userId, userText);
         
-        // Update previous message's next pointer
-        if (conversation.getLastMessageId() != null) {
-            Message prevMessage = messageRepository.findById(conversation.getLastMessageId())
-                    .orElseThrow(() -> {
-                        logger.error("Previous message {} not found for conversation {}", 
-                                conversation.getLastMessageId(), conversationId);
-                        return new RuntimeException(Constants.ERROR_PREVIOUS_MESSAGE_NOT_FOUND);
-                    });
-            prevMessage.setNextMessageId(newMessage.getId());
-            messageRepository.save(prevMessage);
+        String aiResponseText;
+        Timer.Sample geminiSample = chatMetrics.startTimer();
+        try {
+            aiResponseText = geminiService.generateResponseStream(userText, exchange.getSummary(),
+                    exchange.getContextMessages(), options, onChunk);
+            chatMetrics.recordGeminiCall(geminiSample, ChatMetrics.MODE_STREAM, false);
+            chatMetrics.recordResponseChars(aiResponseText.length());
+        } catch (Exception e) {
+            logger.error("Gemini streaming error while generating response for conversation {}", conversationId, e);
+            chatMetrics.recordGeminiCall(geminiSample, ChatMetrics.MODE_STREAM, true);
+            aiResponseText = Constants.ERROR_AI_FALLBACK;
         }
         
-        // Update conversation head/tail
-        if (conversation.getHeadMessageId() == null) {
-            conversation.setHeadMessageId(newMessage.getId());
-        }
-        conversation.setLastMessageId(newMessage.getId());
-        conversationRepository.save(conversation);
+        Message assistantMessage = appendAssistantMessage(conversationId, aiResponseText);
         
-        return newMessage;
+        chatMetrics.recordExchange(exchangeSample, ChatMetrics.MODE_STREAM);
+        logger.info("Streamed message exchange completed for conversation {}", conversationId);
+        return EntityMapper.toDto(assistantMessage);
+    }
+    
+    /**
+     * Phase three of an exchange: persists the reply in its own short transaction.
+     */
+    private Message appendAssistantMessage(Long conversationId, String aiResponseText) {
+        return chatMetrics.timeStage(ChatMetrics.STAGE_ASSISTANT_INSERT, () -> messagePersistenceService
+                .appendMessage(conversationId, MessageRole.ASSISTANT, aiResponseText));
+    }
+    
+    /**
+     * Validates the arguments of a send request.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param userId The ID of the user sending the message
+     * @param userText The message text from the user
+     * @throws ValidationException if an argument is missing
+     */
+    private void validateSendRequest(Long conversationId, Long userId, String userText) {
+        if (conversationId == null) {
+            throw new ValidationException(Constants.ERROR_CONVERSATION_ID_NULL);
+        }
+        if (userId == null) {
+            throw new ValidationException(Constants.ERROR_USER_ID_NULL);
+        }
+        if (userText == null || userText.trim().isEmpty()) {
+            throw new ValidationException(Constants.ERROR_MESSAGE_TEXT_NULL);
+        }
     }
     
     /**
@@ -255,10 +371,12 @@ public class ChatService {
             throw new ValidationException(Constants.ERROR_USER_ID_NULL);
         }
         
-        Conversation conversation = loadConversationWithOwnership(conversationId, userId);
-        
-        conversation.setTitle(newTitle);
-        conversationRepository.save(conversation);
+        // Targeted update: saving the whole entity would write back stale last_message_id,
+        // message_count and summary columns if a send committed in between
+        if (conversationRepository.updateTitle(conversationId, userId, newTitle) == 0) {
+            logger.warn("Conversation {} not found or user {} doesn't own it", conversationId, userId);
+            throw new ConversationNotFoundException(Constants.ERROR_CONVERSATION_NOT_FOUND);
+        }
         
         logger.info("Updated title for conversation {}", conversationId);
     }
@@ -279,29 +397,53 @@ public class ChatService {
             throw new ValidationException(Constants.ERROR_USER_ID_NULL);
         }
         
-        Conversation conversation = loadConversationWithOwnership(conversationId, userId);
+        loadConversationWithOwnership(conversationId, userId);
         
-        // Soft delete
-        conversation.setIsDeleted(true);
-        conversationRepository.save(conversation);
+        // Soft delete; only the call that flips the flag releases the user's counter slot
+        if (conversationRepository.softDelete(conversationId) == 1) {
+            userRepository.decrementConversationCount(userId);
+        }
+        invalidateCachesAfterCommit(conversationId);
         
         logger.info("Soft-deleted conversation {} for user {}", conversationId, userId);
     }
     
+    /**
+     * Drops the conversation from the in-process caches now and again once the delete commits,
+     * leaving an ownership tombstone so a concurrent reader cannot re-cache the row it saw
+     * before the commit.
+     */
+    private void invalidateCachesAfterCommit(Long conversationId) {
+        ownershipCache.invalidate(conversationId);
+        contextWindowCache.invalidate(conversationId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ownershipCache.recordDeleted(conversationId);
+                contextWindowCache.invalidate(conversationId);
+            }
+        });
+    }
+    
     /**
      * Validates that a user owns a conversation.
+     * Confirmed ownership is cached briefly, so repeated reads skip the query.
      * 
      * @param conversationId The ID of the conversation
      * @param userId The ID of the user
      * @throws UnauthorizedException if user doesn't own the conversation
      */
     private void validateConversationOwnership(Long conversationId, Long userId) {
+        if (ownershipCache.isKnownOwner(conversationId, userId)) {
+            return;
+        }
         conversationRepository
                 .findByIdAndUserIdAndIsDeletedFalse(conversationId, userId)
                 .orElseThrow(() -> {
                     logger.warn("User {} attempted to access conversation {} without ownership", userId, conversationId);
                     return new UnauthorizedException(Constants.ERROR_UNAUTHORIZED_CONVERSATION);
                 });
+        ownershipCache.recordOwner(conversationId, userId);
     }
     
     /**
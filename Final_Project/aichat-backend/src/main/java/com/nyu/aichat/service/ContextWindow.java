@@ -0,0 +1,27 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.entity.Message;
+
+import java.util.List;
+
+/**
+ * Prompt context for one exchange: the stored summary of older turns and the
+ * recent messages that fit the token budget, newest first.
+ */
+public class ContextWindow {
+    private final String summary;
+    private final List<Message> messages;
+    
+    public ContextWindow(String summary, List<Message> messages) {
+        this.summary = summary;
+        this.messages = messages;
+    }
+    
+    public String getSummary() {
+        return summary;
+    }
+    
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
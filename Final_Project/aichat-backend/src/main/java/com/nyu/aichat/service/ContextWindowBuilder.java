@@ -0,0 +1,148 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.entity.Conversation;
+import com.nyu.aichat.entity.Message;
+import com.nyu.aichat.entity.MessageRole;
+import com.nyu.aichat.util.Constants;
+import com.nyu.aichat.util.TokenEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Packs recent messages into the prompt up to a token budget and folds the turns that
+ * no longer fit into the conversation's stored summary.
+ * The budget covers the history and the current message; the summary is capped separately.
+ */
+@Component
+public class ContextWindowBuilder {
+    private static final int EXCERPT_CHARS = 160;
+    
+    private final int tokenBudget;
+    private final int maxMessages;
+    private final int summaryMaxChars;
+    
+    public ContextWindowBuilder(@Value("${chat.context.token-budget:2000}") int tokenBudget,
+                                @Value("${chat.context.max-messages:16}") int maxMessages,
+                                @Value("${chat.context.summary-max-chars:2000}") int summaryMaxChars) {
+        if (maxMessages > ContextWindowCache.WINDOW_SIZE - 2) {
+            // Turns must spend at least one exchange outside the packed window to be summarized
+            throw new IllegalArgumentException("chat.context.max-messages must be at most "
+                    + (ContextWindowCache.WINDOW_SIZE - 2));
+        }
+        this.tokenBudget = tokenBudget;
+        this.maxMessages = maxMessages;
+        this.summaryMaxChars = summaryMaxChars;
+    }
+    
+    /**
+     * Builds the context window for a new user message.
+     * Updates the conversation's summary in place; the caller must hold the conversation row lock
+     * and apply the change before the message append flushes the conversation.
+     * 
+     * @param conversation The locked conversation
+     * @param recentMessages Latest messages, newest first
+     * @param userText The message being sent
+     * @return The summary and the packed messages, newest first
+     */
+    public ContextWindow build(Conversation conversation, List<Message> recentMessages, String userText) {
+        int remaining = tokenBudget - TokenEstimator.estimate(userText);
+        List<Message> packed = new ArrayList<>();
+        List<Message> evicted = new ArrayList<>();
+        
+        for (Message message : recentMessages) {
+            int cost = TokenEstimator.estimateTurn(message.getContent());
+            if (evicted.isEmpty() && packed.size() < maxMessages && cost <= remaining) {
+                packed.add(message);
+                remaining -= cost;
+            } else {
+                // Keep the packed window contiguous: everything older than the first miss is evicted
+                evicted.add(message);
+            }
+        }
+        
+        foldIntoSummary(conversation, evicted);
+        return new ContextWindow(conversation.getSummary(), packed);
+    }
+    
+    /**
+     * Appends an excerpt of every evicted turn not yet covered by the summary, oldest first,
+     * then drops the oldest summary lines beyond the size cap.
+     * The watermark is the (ts, id) position of the newest folded turn, not the id alone:
+     * pooled ids are not in insert order across nodes.
+     */
+    private void foldIntoSummary(Conversation conversation, List<Message> evicted) {
+        List<Message> newTurns = new ArrayList<>();
+        for (Message message : evicted) {
+            if (isAfterWatermark(message, conversation)) {
+                newTurns.add(message);
+            }
+        }
+        if (newTurns.isEmpty()) {
+            return;
+        }
+        Collections.reverse(newTurns);
+        
+        StringBuilder summary = new StringBuilder();
+        if (conversation.getSummary() != null) {
+            summary.append(conversation.getSummary());
+        }
+        for (Message message : newTurns) {
+            String role = message.getRole() == MessageRole.USER ? Constants.ROLE_USER : Constants.ROLE_ASSISTANT;
+            summary.append(role).append(": ").append(excerpt(message.getContent())).append("\n");
+        }
+        
+        Message newest = newTurns.get(newTurns.size() - 1);
+        conversation.setSummary(trimOldestLines(summary.toString()));
+        conversation.setSummaryThroughTs(newest.getTimestamp());
+        conversation.setSummaryThroughMessageId(newest.getId());
+    }
+    
+    /**
+     * Orders by (ts, id) like every message read. Timestamps are compared at the database's
+     * microsecond precision, so a message held in memory matches its stored watermark.
+     */
+    private static boolean isAfterWatermark(Message message, Conversation conversation) {
+        Instant watermarkTs = conversation.getSummaryThroughTs();
+        if (watermarkTs == null) {
+            return true;
+        }
+        int byTs = micros(message.getTimestamp()).compareTo(micros(watermarkTs));
+        return byTs > 0 || (byTs == 0 && message.getId() > conversation.getSummaryThroughMessageId());
+    }
+    
+    private static Instant micros(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.MICROS);
+    }
+    
+    /**
+     * Returns the first sentence of a message on a single line, capped at EXCERPT_CHARS.
+     */
+    private static String excerpt(String content) {
+        String flat = content.replaceAll("\\s+", " ").trim();
+        int sentenceEnd = flat.indexOf(". ");
+        if (sentenceEnd > 0) {
+            flat = flat.substring(0, sentenceEnd + 1);
+        }
+        if (flat.length() > EXCERPT_CHARS) {
+            flat = flat.substring(0, EXCERPT_CHARS) + "...";
+        }
+        return flat;
+    }
+    
+    private String trimOldestLines(String summary) {
+        while (summary.length() > summaryMaxChars) {
+            int lineEnd = summary.indexOf('\n');
+            if (lineEnd < 0 || lineEnd == summary.length() - 1) {
+                return summary.substring(summary.length() - summaryMaxChars);
+            }
+            summary = summary.substring(lineEnd + 1);
+        }
+        return summary;
+    }
+}
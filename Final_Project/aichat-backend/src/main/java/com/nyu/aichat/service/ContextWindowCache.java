@@ -0,0 +1,93 @@
+package com.nyu.aichat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nyu.aichat.entity.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-process cache of the most recent messages of active conversations.
+ * Each entry is an immutable snapshot, newest first, so prompt building can skip the context query.
+ * Size and idle-time eviction are handled by Caffeine (W-TinyLFU).
+ */
+@Component
+public class ContextWindowCache {
+    public static final int WINDOW_SIZE = 20;
+    
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getTimestamp)
+            .thenComparing(Message::getId)
+            .reversed();
+    
+    private final Cache<Long, List<Message>> cache;
+    
+    public ContextWindowCache(@Value("${chat.context-cache.max-conversations:10000}") long maxConversations,
+                              @Value("${chat.context-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+    
+    /**
+     * Returns the cached window for a conversation, loading it on a miss.
+     * Concurrent callers for the same conversation share one load.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param loader Reads the latest messages, newest first
+     * @return Immutable list of at most WINDOW_SIZE messages, newest first
+     */
+    public List<Message> get(Long conversationId, Function<Long, List<Message>> loader) {
+        return cache.get(conversationId, id -> snapshot(loader.apply(id)));
+    }
+    
+    /**
+     * Adds a newly persisted message to the conversation's window if the window is cached.
+     * Messages already present are ignored, so a racing load cannot produce duplicates.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param message The persisted message
+     */
+    public void append(Long conversationId, Message message) {
+        cache.asMap().computeIfPresent(conversationId, (id, window) -> {
+            if (window.stream().anyMatch(m -> m.getId().equals(message.getId()))) {
+                return window;
+            }
+            List<Message> merged = new ArrayList<>(window);
+            merged.add(message);
+            return snapshot(merged);
+        });
+    }
+    
+    public void invalidate(Long conversationId) {
+        cache.invalidate(conversationId);
+    }
+    
+    /**
+     * Copies messages into detached instances that hold no reference to the persistence context,
+     * sorted newest first and trimmed to the window size.
+     */
+    private static List<Message> snapshot(List<Message> messages) {
+        return Collections.unmodifiableList(messages.stream()
+                .sorted(NEWEST_FIRST)
+                .limit(WINDOW_SIZE)
+                .map(ContextWindowCache::copyOf)
+                .collect(Collectors.toList()));
+    }
+    
+    private static Message copyOf(Message message) {
+        Message copy = new Message(null, message.getRole(), message.getContent());
+        copy.setId(message.getId());
+        copy.setTimestamp(message.getTimestamp());
+        return copy;
+    }
+}
@@ -7,24 +7,25 @@ import com.nyu.aichat.entity.MessageRole;
 import com.nyu.aichat.exception.AiServiceException;
 import com.nyu.aichat.util.Constants;
 import com.nyu.aichat.util.TextCleaner;
+import com.nyu.aichat.util.TokenEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Service for integrating with Google Gemini API.
  * Handles prompt building, API communication, and response parsing.
+ * HTTP is delegated to a pluggable GeminiTransport, and every call goes through AiCallGuard.
+ * Non-streaming calls are hedged and bounded by the client's deadline via AiRequestHedger.
  */
 @Service
 public class GeminiService {
@@ -33,56 +34,209 @@ public class GeminiService {
     @Value("${gemini.api.key:}")
     private String geminiApiKey;
     
+    // Overridable so load tests can point at a local stub (aichat-loadtest GeminiStubServer)
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com/v1beta}")
+    private String geminiBaseUrl;
+    
     private static final String MODEL = "gemini-2.5-flash-lite";
-    private static final String API_URL = "https://generativelanguage.googleapis.com/v1beta/models/" + MODEL + ":generateContent";
-    private static final int TIMEOUT_SECONDS = 10000; // 10 seconds in milliseconds
-    private static final int CONTEXT_MESSAGES = 6;
+    private static final String GENERATE_PATH = "/models/" + MODEL + ":generateContent";
+    private static final String STREAM_GENERATE_PATH = "/models/" + MODEL + ":streamGenerateContent?alt=sse";
+    private static final String SSE_DATA_PREFIX = "data:";
     
     private final ObjectMapper objectMapper;
+    private final GeminiTransport transport;
+    private final AiCallGuard aiCallGuard;
+    private final AiRequestHedger requestHedger;
+    private final AiResponseCache responseCache;
+    private final ChatMetrics chatMetrics;
     
-    public GeminiService() {
+    @Autowired
+    public GeminiService(GeminiTransport transport, AiCallGuard aiCallGuard, AiRequestHedger requestHedger,
+                         AiResponseCache responseCache, ChatMetrics chatMetrics) {
         this.objectMapper = new ObjectMapper();
+        this.transport = transport;
+        this.aiCallGuard = aiCallGuard;
+        this.requestHedger = requestHedger;
+        this.responseCache = responseCache;
+        this.chatMetrics = chatMetrics;
     }
     
     /**
      * Generates an AI response using the Gemini API.
      * 
      * @param userMessage The current user message
-     * @param contextMessages Previous messages for context (up to 6)
+     * @param summary Summary of older turns, or null
+     * @param contextMessages Previous messages for context, newest first
+     * @param options Per-request options
      * @return The cleaned AI response text
      * @throws AiServiceException if API key is missing or API call fails
      */
-    public String generateResponse(String userMessage, List<Message> contextMessages) {
-        if (geminiApiKey == null || geminiApiKey.isEmpty()) {
-            logger.error("Gemini API key not configured");
-            throw new AiServiceException("Gemini API key not configured");
+    public String generateResponse(String userMessage, String summary, List<Message> contextMessages,
+                                   AiRequestOptions options) {
+        try {
+            return generateResponseAsync(userMessage, summary, contextMessages, options).join();
+        } catch (CompletionException e) {
+            throw toAiServiceException(e.getCause());
+        }
+    }
+    
+    /**
+     * Generates an AI response without blocking the calling thread.
+     * Identical prompts are answered from AiResponseCache unless the options bypass it.
+     * 
+     * @param userMessage The current user message
+     * @param summary Summary of older turns, or null
+     * @param contextMessages Previous messages for context, newest first
+     * @param options Per-request options
+     * @return Future completing with the cleaned AI response text, or failing with AiServiceException
+     */
+    public CompletableFuture<String> generateResponseAsync(String userMessage, String summary,
+                                                           List<Message> contextMessages,
+                                                           AiRequestOptions options) {
+        String prompt;
+        String requestBody;
+        try {
+            requireApiKey();
+            prompt = buildPrompt(userMessage, summary, contextMessages);
+            chatMetrics.recordPromptChars(prompt.length());
+            logger.debug("Built prompt with {} context messages, ~{} tokens",
+                    contextMessages.size(), TokenEstimator.estimate(prompt));
+            requestBody = buildRequestBody(prompt);
+        } catch (Exception e) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(toAiServiceException(e));
+            return failed;
         }
         
+        if (!responseCache.appliesTo(options)) {
+            // Not shared: the call carries this caller's deadline, so its attempts stop with it
+            return callGenerateContent(requestBody, options);
+        }
+        // May be shared with identical requests (single-flight), so the upstream call runs without
+        // a deadline; each caller bounds its own copy by its own deadline
+        CompletableFuture<String> reply = responseCache.get(cacheKey(prompt), options,
+                () -> callGenerateContent(requestBody, options.withoutDeadline()));
+        return requestHedger.withDeadline(reply, options);
+    }
+    
+    /**
+     * Sends a generateContent request through the hedger and call guard and parses the reply.
+     * 
+     * @param requestBody The JSON request body
+     * @param options Per-request options; carries no deadline when the call may be shared
+     * @return Future completing with the cleaned AI response text, or failing with AiServiceException;
+     *         cancelling it cancels every attempt
+     */
+    private CompletableFuture<String> callGenerateContent(String requestBody, AiRequestOptions options) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> response = requestHedger.execute(
+                () -> transport.post(geminiBaseUrl + GENERATE_PATH, requestBody), options);
+        // Already complete unless the caller gave up first; then stop the attempts and free their permits
+        result.whenComplete((reply, error) -> response.cancel(false));
+        response.whenComplete((responseStr, error) -> {
+            if (error != null) {
+                result.completeExceptionally(toAiServiceException(error));
+                return;
+            }
+            try {
+                logger.debug("Received response from Gemini API");
+                result.complete(TextCleaner.cleanResponse(parseGeminiResponse(responseStr)));
+            } catch (Exception e) {
+                result.completeExceptionally(toAiServiceException(e));
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Generates an AI response using the Gemini streaming API.
+     * Each text chunk is passed to the consumer as soon as it arrives.
+     * A cached reply is passed as a single chunk without calling Gemini.
+     * 
+     * @param userMessage The current user message
+     * @param summary Summary of older turns, or null
+     * @param contextMessages Previous messages for context, newest first
+     * @param options Per-request options
+     * @param onChunk Receives raw text chunks in arrival order
+     * @return The cleaned full AI response text
+     * @throws AiServiceException if API key is missing or API call fails
+     */
+    public String generateResponseStream(String userMessage, String summary, List<Message> contextMessages,
+                                         AiRequestOptions options, Consumer<String> onChunk) {
         try {
-            String prompt = buildPrompt(userMessage, contextMessages);
-            logger.debug("Built prompt with {} context messages", contextMessages.size());
+            requireApiKey();
+            String prompt = buildPrompt(userMessage, summary, contextMessages);
+            chatMetrics.recordPromptChars(prompt.length());
+            logger.debug("Built streaming prompt with {} context messages, ~{} tokens",
+                    contextMessages.size(), TokenEstimator.estimate(prompt));
+            
+            String cached = responseCache.getIfPresent(cacheKey(prompt), options);
+            if (cached != null) {
+                onChunk.accept(cached);
+                return cached;
+            }
             
-            String rawResponse = callGeminiApi(prompt);
-            logger.debug("Received response from Gemini API");
+            StringBuilder fullText = new StringBuilder();
+            String requestBody = buildRequestBody(prompt);
+            // Not hedged (chunks already sent cannot be taken back), but still bounded by the client's deadline
+            requestHedger.withDeadline(aiCallGuard.execute(() -> transport.stream(geminiBaseUrl + STREAM_GENERATE_PATH, requestBody, line -> {
+                String chunk = parseStreamLine(line);
+                if (!chunk.isEmpty()) {
+                    fullText.append(chunk);
+                    onChunk.accept(chunk);
+                }
+            })), options).join();
+            logger.debug("Finished streaming response from Gemini API");
             
-            return TextCleaner.cleanResponse(rawResponse);
-        } catch (AiServiceException e) {
-            // Re-throw AiServiceException as-is
-            throw e;
+            if (fullText.length() == 0) {
+                throw new AiServiceException("Gemini API stream ended without text");
+            }
+            String responseText = TextCleaner.cleanResponse(fullText.toString());
+            responseCache.put(cacheKey(prompt), responseText);
+            return responseText;
+        } catch (CompletionException e) {
+            throw toAiServiceException(e.getCause());
         } catch (Exception e) {
-            logger.error("Unexpected error while generating AI response", e);
-            throw new AiServiceException(Constants.ERROR_AI_FALLBACK, e);
+            throw toAiServiceException(e);
+        }
+    }
+    
+    /**
+     * Response cache key: the model plus the exact prompt, so a model change never serves stale replies.
+     */
+    private static String cacheKey(String prompt) {
+        return MODEL + "\n" + prompt;
+    }
+    
+    private void requireApiKey() {
+        if (geminiApiKey == null || geminiApiKey.isEmpty()) {
+            logger.error("Gemini API key not configured");
+            throw new AiServiceException("Gemini API key not configured");
+        }
+    }
+    
+    /**
+     * Re-throws AiServiceException as-is and wraps anything else with the fallback message.
+     */
+    private AiServiceException toAiServiceException(Throwable error) {
+        if (error instanceof AiServiceException) {
+            return (AiServiceException) error;
         }
+        logger.error("Unexpected error while generating AI response", error);
+        return new AiServiceException(Constants.ERROR_AI_FALLBACK, error);
     }
     
     /**
-     * Builds a prompt string from context messages and the current user message.
+     * Builds a prompt string from the summary, context messages and the current user message.
+     * The context has already been packed to the token budget by ContextWindowBuilder.
+     * Package-private so aichat-bench can measure it.
      * 
      * @param userMessage The current user message
+     * @param summary Summary of older turns, or null
      * @param contextMessages Previous messages (in DESC order, most recent first)
      * @return Formatted prompt string
      */
-    private String buildPrompt(String userMessage, List<Message> contextMessages) {
+    String buildPrompt(String userMessage, String summary, List<Message> contextMessages) {
         StringBuilder prompt = new StringBuilder();
         
         // Add system instruction at the beginning
@@ -91,11 +245,13 @@ public class GeminiService {
         prompt.append("Do not use markdown bold (** **) or asterisk bullets (*). ");
         prompt.append("Use simple text with dashes (-) for lists if needed.\n\n");
         
+        // Older turns that no longer fit the token budget
+        if (summary != null && !summary.isEmpty()) {
+            prompt.append("EARLIER IN THIS CONVERSATION:\n").append(summary).append("\n");
+        }
+        
         // Context messages come in DESC order (most recent first), but we need chronological order
-        // Reverse the list to get oldest first, then limit to last 6
-        List<Message> recentMessages = contextMessages.stream()
-                .limit(CONTEXT_MESSAGES)
-                .collect(Collectors.toList());
+        List<Message> recentMessages = new ArrayList<>(contextMessages);
         
         // Reverse to chronological order (oldest to newest)
         Collections.reverse(recentMessages);
@@ -112,58 +268,15 @@ public class GeminiService {
     }
     
     /**
-     * Calls the Gemini API with the given prompt.
-     * 
-     * @param prompt The formatted prompt string
-     * @return The raw response text from Gemini
-     * @throws Exception if API call fails
-     */
-    private String callGeminiApi(String prompt) throws Exception {
-        String responseStr = sendHttpRequest(prompt);
-        return parseGeminiResponse(responseStr);
-    }
-    
-    /**
-     * Sends an HTTP POST request to the Gemini API.
+     * Builds the generateContent request JSON for a prompt.
      * 
      * @param prompt The prompt to send
-     * @return The raw JSON response string
-     * @throws Exception if HTTP request fails
+     * @return The request body
+     * @throws Exception if serialization fails
      */
-    private String sendHttpRequest(String prompt) throws Exception {
-        HttpURLConnection conn = createConnection();
-        sendRequest(conn, prompt);
-        return readResponse(conn);
-    }
-    
-    /**
-     * Creates and configures an HTTP connection to the Gemini API.
-     * 
-     * @return Configured HttpURLConnection
-     * @throws Exception if URL creation fails
-     */
-    private HttpURLConnection createConnection() throws Exception {
-        URL url = new URL(API_URL + "?key=" + geminiApiKey);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setConnectTimeout(TIMEOUT_SECONDS);
-        conn.setReadTimeout(TIMEOUT_SECONDS);
-        conn.setDoOutput(true);
-        return conn;
-    }
-    
-    /**
-     * Sends the request body to the Gemini API.
-     * 
-     * @param conn The HTTP connection
-     * @param prompt The prompt to send
-     * @throws Exception if writing request fails
-     */
-    private void sendRequest(HttpURLConnection conn, String prompt) throws Exception {
-        // Build request JSON using Jackson
-        String requestBody = objectMapper.writeValueAsString(
-            Collections.singletonMap("contents", 
+    private String buildRequestBody(String prompt) throws Exception {
+        return objectMapper.writeValueAsString(
+            Collections.singletonMap("contents",
                 Collections.singletonList(
                     Collections.singletonMap("parts",
                         Collections.singletonList(
@@ -173,41 +286,42 @@ public class GeminiService {
                 )
             )
         );
-        
-        try (OutputStream os = conn.getOutputStream()) {
-            byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
-        }
     }
     
     /**
-     * Reads the HTTP response from the Gemini API.
+     * Extracts the text chunk from one line of a Server-Sent Events stream.
+     * Every "data:" line carries a partial GenerateContentResponse; other lines are ignored.
      * 
-     * @param conn The HTTP connection
-     * @return The raw response body as a string
-     * @throws Exception if reading response fails or status code is not OK
+     * @param line One line of the event stream
+     * @return The text chunk, or an empty string if the line carries none
+     * @throws Exception if the data payload is not valid JSON
      */
-    private String readResponse(HttpURLConnection conn) throws Exception {
-        int responseCode = conn.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-            logger.error("Gemini API returned error code: {}", responseCode);
-            throw new Exception("Gemini API returned error code: " + responseCode);
-        }
-        
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            return br.lines().collect(Collectors.joining());
+    private String parseStreamLine(String line) throws Exception {
+        if (!line.startsWith(SSE_DATA_PREFIX)) {
+            return "";
         }
+        return extractText(objectMapper.readTree(line.substring(SSE_DATA_PREFIX.length()).trim()));
+    }
+    
+    /**
+     * Extracts the text of the first candidate part, or an empty string if absent.
+     * 
+     * @param root The parsed GenerateContentResponse
+     * @return The text content, never null
+     */
+    private String extractText(JsonNode root) {
+        return root.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText("");
     }
     
     /**
      * Parses the JSON response from Gemini API and extracts the text content.
+     * Package-private so aichat-bench can measure it.
      * 
      * @param responseStr The raw JSON response string
      * @return The extracted text content
      * @throws Exception if JSON parsing fails or text field is missing
      */
-    private String parseGeminiResponse(String responseStr) throws Exception {
+    String parseGeminiResponse(String responseStr) throws Exception {
         try {
             JsonNode root = objectMapper.readTree(responseStr);
             
@@ -0,0 +1,43 @@
+package com.nyu.aichat.service;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP transport used by GeminiService.
+ * Implementations own connection management and authenticate every call with the API key header.
+ */
+public interface GeminiTransport extends Closeable {
+    
+    /**
+     * Header carrying the API key, so the key never appears in URLs or access logs.
+     */
+    String API_KEY_HEADER = "x-goog-api-key";
+    
+    /**
+     * POSTs a JSON body and completes with the response body.
+     * 
+     * @param url The endpoint URL
+     * @param requestBody The JSON request body
+     * @return Future completing with the body of a 200 response, or failing otherwise
+     */
+    CompletableFuture<String> post(String url, String requestBody);
+    
+    /**
+     * POSTs a JSON body and hands the response to the consumer line by line as it arrives.
+     * 
+     * @param url The endpoint URL
+     * @param requestBody The JSON request body
+     * @param lineConsumer Receives each response line without its line terminator
+     * @return Future completing once the response has been fully read
+     */
+    CompletableFuture<Void> stream(String url, String requestBody, LineConsumer lineConsumer);
+    
+    /**
+     * Receives response lines; may throw to abort the exchange.
+     */
+    @FunctionalInterface
+    interface LineConsumer {
+        void accept(String line) throws Exception;
+    }
+}
@@ -0,0 +1,24 @@
+package com.nyu.aichat.service;
+
+import java.time.Instant;
+
+/**
+ * A signed session token and the instant it stops being accepted.
+ */
+public class IssuedToken {
+    private final String token;
+    private final Instant expiresAt;
+    
+    public IssuedToken(String token, Instant expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+    
+    public String getToken() {
+        return token;
+    }
+    
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
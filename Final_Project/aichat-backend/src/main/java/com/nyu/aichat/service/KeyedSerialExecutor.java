@@ -0,0 +1,215 @@
+package com.nyu.aichat.service;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks one at a time per key, in arrival order, while tasks for different keys run in parallel.
+ * Each busy key keeps only the completion future of its most recent task and waits on the one before it,
+ * so there is no global lock and idle keys take no memory.
+ * Tasks run either on the calling thread (runSerially) or on an executor (submit, submitWithinMaxWait);
+ * all share one order per key.
+ * Used to order message sends per conversation on this node; the conversation row lock
+ * (SELECT ... FOR UPDATE) still keeps the message chain consistent across nodes.
+ * 
+ * @param <K> The key type, e.g. a conversation ID
+ */
+public class KeyedSerialExecutor<K> {
+    private final ConcurrentHashMap<K, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final long maxWaitMs;
+    private final TaskScheduler waitTimer;
+    
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong contendedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    
+    /**
+     * @param maxWaitMs How long a task may wait for earlier tasks on its key before it is rejected
+     */
+    public KeyedSerialExecutor(long maxWaitMs) {
+        this(maxWaitMs, null);
+    }
+    
+    /**
+     * @param maxWaitMs How long a task may wait for earlier tasks on its key before it is rejected
+     * @param waitTimer Rejects tasks queued with submitWithinMaxWait once max-wait-ms has passed
+     */
+    public KeyedSerialExecutor(long maxWaitMs, TaskScheduler waitTimer) {
+        this.maxWaitMs = maxWaitMs;
+        this.waitTimer = waitTimer;
+    }
+    
+    /**
+     * Runs the task on the calling thread once every earlier task for the key has finished.
+     * 
+     * @param key The ordering key
+     * @param task The task to run
+     * @return The task's result
+     * @throws TaskRejectedException if earlier tasks for the key did not finish within max-wait-ms
+     */
+    public <T> T runSerially(K key, Supplier<T> task) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(key, done);
+        boolean ranTask = false;
+        try {
+            if (previous != null && !previous.isDone()) {
+                contendedCount.incrementAndGet();
+                awaitTurn(previous);
+            }
+            ranTask = true;
+            runCount.incrementAndGet();
+            return task.get();
+        } finally {
+            if (ranTask) {
+                release(key, done);
+            } else {
+                // Gave up waiting: later tasks must still not overtake the ones ahead of us
+                previous.whenComplete((ignored, error) -> release(key, done));
+            }
+        }
+    }
+    
+    /**
+     * Runs the task on the executor once every earlier task for the key has finished,
+     * without blocking the caller. Tasks waiting for their turn hold no executor thread.
+     * 
+     * @param key The ordering key
+     * @param task The task to run
+     * @param executor Runs the task when its turn comes
+     * @return Future completing with the task's result, or failing with the task's exception or,
+     *         if the executor rejects the task once earlier tasks finish, a RejectedExecutionException
+     * @throws RejectedExecutionException if no earlier task is pending and the executor rejects the task
+     */
+    public <T> CompletableFuture<T> submit(K key, Supplier<T> task, Executor executor) {
+        return submit(key, task, executor, false);
+    }
+    
+    /**
+     * Like submit, but gives up if earlier tasks for the key are still running after max-wait-ms,
+     * the same bound runSerially applies. A task that gives up never runs.
+     * 
+     * @param key The ordering key
+     * @param task The task to run
+     * @param executor Runs the task when its turn comes
+     * @return Future completing like submit's, or failing with TaskRejectedException once max-wait-ms has passed
+     * @throws RejectedExecutionException if no earlier task is pending and the executor rejects the task
+     * @throws IllegalStateException if this executor was created without a wait timer
+     */
+    public <T> CompletableFuture<T> submitWithinMaxWait(K key, Supplier<T> task, Executor executor) {
+        if (waitTimer == null) {
+            throw new IllegalStateException("No wait timer configured");
+        }
+        return submit(key, task, executor, true);
+    }
+    
+    private <T> CompletableFuture<T> submit(K key, Supplier<T> task, Executor executor, boolean boundedWait) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(key, done);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        
+        Runnable run = () -> {
+            try {
+                runCount.incrementAndGet();
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        };
+        if (previous == null || previous.isDone()) {
+            try {
+                executor.execute(run);
+            } catch (RejectedExecutionException e) {
+                // Nothing was queued: free the key and refuse the caller directly
+                release(key, done);
+                throw e;
+            }
+            result.whenComplete((value, error) -> release(key, done));
+            return result;
+        }
+        
+        contendedCount.incrementAndGet();
+        // Whichever comes first, the task's turn or the wait timeout, decides whether the task runs
+        AtomicBoolean decided = new AtomicBoolean();
+        ScheduledFuture<?> timeout = boundedWait ? waitTimer.schedule(() -> {
+            if (decided.compareAndSet(false, true)) {
+                timeoutCount.incrementAndGet();
+                result.completeExceptionally(new TaskRejectedException(
+                        "Timed out after " + maxWaitMs + " ms waiting for earlier tasks on the same key"));
+            }
+        }, new Date(System.currentTimeMillis() + maxWaitMs)) : null;
+        previous.whenComplete((ignored, error) -> {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (!decided.compareAndSet(false, true) || result.isDone()) {
+                // Timed out, or the caller cancelled while waiting
+                return;
+            }
+            try {
+                executor.execute(run);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        // A task that gave up waiting keeps its place until the ones ahead of it finish,
+        // so later tasks cannot overtake them
+        result.whenComplete((value, error) -> previous.whenComplete((ignored, previousError) -> release(key, done)));
+        return result;
+    }
+    
+    private void awaitTurn(CompletableFuture<Void> previous) {
+        try {
+            previous.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeoutCount.incrementAndGet();
+            throw new TaskRejectedException("Timed out after " + maxWaitMs + " ms waiting for earlier tasks on the same key");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting for earlier tasks on the same key", e);
+        } catch (ExecutionException e) {
+            // Completion futures are only ever completed normally
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private void release(K key, CompletableFuture<Void> done) {
+        // Removes the entry only if no later task has queued behind this one
+        tails.remove(key, done);
+        done.complete(null);
+    }
+    
+    /**
+     * Keys with a task running or waiting.
+     */
+    public int getActiveKeys() {
+        return tails.size();
+    }
+    
+    public long getRunCount() {
+        return runCount.get();
+    }
+    
+    /**
+     * Tasks that had to wait for an earlier task on the same key.
+     */
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+    
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+}
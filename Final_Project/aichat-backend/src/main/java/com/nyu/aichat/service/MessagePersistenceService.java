@@ -0,0 +1,149 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.entity.Conversation;
+import com.nyu.aichat.entity.Message;
+import com.nyu.aichat.entity.MessageRole;
+import com.nyu.aichat.exception.ConversationNotFoundException;
+import com.nyu.aichat.exception.UnauthorizedException;
+import com.nyu.aichat.exception.ValidationException;
+import com.nyu.aichat.repository.ConversationRepository;
+import com.nyu.aichat.repository.MessageRepository;
+import com.nyu.aichat.util.Constants;
+import com.nyu.aichat.util.ValidationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Short write transactions for a message exchange.
+ * Kept separate from ChatService so each phase runs through the transactional proxy
+ * and no database connection is held while waiting on Gemini.
+ */
+@Service
+public class MessagePersistenceService {
+    private static final Logger logger = LoggerFactory.getLogger(MessagePersistenceService.class);
+    
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final ContextWindowCache contextWindowCache;
+    private final ContextWindowBuilder contextWindowBuilder;
+    private final OwnershipCache ownershipCache;
+    private final ChatMetrics chatMetrics;
+    
+    @Autowired
+    public MessagePersistenceService(ConversationRepository conversationRepository,
+                                     MessageRepository messageRepository,
+                                     ContextWindowCache contextWindowCache,
+                                     ContextWindowBuilder contextWindowBuilder,
+                                     OwnershipCache ownershipCache,
+                                     ChatMetrics chatMetrics) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.contextWindowCache = contextWindowCache;
+        this.contextWindowBuilder = contextWindowBuilder;
+        this.ownershipCache = ownershipCache;
+        this.chatMetrics = chatMetrics;
+    }
+    
+    /**
+     * Phase one of an exchange: validates ownership and the message limit, builds the
+     * token-budgeted context window and appends the user message.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param userId The ID of the user sending the message
+     * @param userText The message text from the user
+     * @return The saved user message and the context read before it
+     * @throws UnauthorizedException if user doesn't own the conversation
+     * @throws ValidationException if message limit exceeded
+     */
+    @Transactional
+    public PendingExchange beginExchange(Long conversationId, Long userId, String userText) {
+        // Validate ownership and take the row lock that orders appends to this conversation
+        Conversation conversation = chatMetrics.timeStage(ChatMetrics.STAGE_OWNERSHIP, () -> conversationRepository
+                .findWithLockByIdAndUserIdAndIsDeletedFalse(conversationId, userId)
+                .orElseThrow(() -> {
+                    logger.warn("User {} attempted to access conversation {} without ownership", userId, conversationId);
+                    return new UnauthorizedException(Constants.ERROR_UNAUTHORIZED_CONVERSATION);
+                }));
+        ownershipCache.recordOwner(conversationId, userId);
+        
+        // Validate message limit against the counter read under the row lock
+        ValidationUtil.validateMessageLimit(conversation.getMessageCount());
+        
+        // Get context messages BEFORE adding user message (latest existing messages)
+        // These will be used to provide context to Gemini, then we add the current user message.
+        // Served from the window cache for active conversations; the row lock keeps it in order.
+        // Must build before the append: its flush writes the updated summary with the conversation row
+        ContextWindow context = chatMetrics.timeStage(ChatMetrics.STAGE_CONTEXT, () -> {
+            List<Message> recentMessages = contextWindowCache.get(conversationId,
+                    messageRepository::findTop20ByConversationIdOrderByTimestampDescIdDesc);
+            return contextWindowBuilder.build(conversation, recentMessages, userText);
+        });
+        
+        Message userMessage = chatMetrics.timeStage(ChatMetrics.STAGE_USER_INSERT,
+                () -> appendToLockedConversation(conversation, MessageRole.USER, userText));
+        return new PendingExchange(userMessage, context);
+    }
+    
+    /**
+     * Adds a message to a conversation and maintains linked-list integrity.
+     * Concurrent appends to the same conversation are serialized by the conversation row lock.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param role The role of the message sender (USER or ASSISTANT)
+     * @param content The message content
+     * @return The persisted Message entity
+     * @throws ConversationNotFoundException if conversation doesn't exist
+     */
+    @Transactional
+    public Message appendMessage(Long conversationId, MessageRole role, String content) {
+        Conversation conversation = conversationRepository.findWithLockById(conversationId)
+                .orElseThrow(() -> {
+                    logger.error("Attempt to add message to non-existent conversation: {}", conversationId);
+                    return new ConversationNotFoundException(Constants.ERROR_CONVERSATION_NOT_FOUND);
+                });
+        return appendToLockedConversation(conversation, role, content);
+    }
+    
+    /**
+     * Inserts the message pointing back at the current tail, then links it with a single
+     * update of the previous tail and the conversation row.
+     * 
+     * @param conversation The conversation, already locked by the current transaction
+     * @param role The role of the message sender (USER or ASSISTANT)
+     * @param content The message content
+     * @return The persisted Message entity
+     */
+    private Message appendToLockedConversation(Conversation conversation, MessageRole role, String content) {
+        Message newMessage = new Message(conversation, role, content);
+        newMessage.setPrevMessageId(conversation.getLastMessageId());
+        newMessage.setNextMessageId(null);
+        newMessage = messageRepository.save(newMessage);
+        
+        conversationRepository.linkAppendedMessage(conversation.getId(), newMessage.getId());
+        updateContextWindow(conversation.getId(), newMessage);
+        return newMessage;
+    }
+    
+    /**
+     * Appends the message to the cached context window while the row lock is still held,
+     * so the next sender to take the lock sees it. Drops the window if the transaction rolls back.
+     */
+    private void updateContextWindow(Long conversationId, Message message) {
+        contextWindowCache.append(conversationId, message);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    contextWindowCache.invalidate(conversationId);
+                }
+            }
+        });
+    }
+}
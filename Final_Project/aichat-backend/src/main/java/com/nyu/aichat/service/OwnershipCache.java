@@ -0,0 +1,66 @@
+package com.nyu.aichat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of confirmed conversation ownership, so repeated reads of an active
+ * conversation skip the ownership query. Only rows read with is_deleted = false are recorded.
+ * A delete on this node leaves a tombstone, so a read that started before the delete committed
+ * cannot re-record the owner afterwards. Deletes on other nodes are not seen: there the TTL
+ * bounds how long a deleted conversation can still pass the ownership check.
+ */
+@Component
+public class OwnershipCache {
+    /** Owner value marking a deleted conversation; user IDs are always positive */
+    private static final Long DELETED = -1L;
+    
+    private final Cache<Long, Long> ownerByConversation;
+    
+    public OwnershipCache(@Value("${chat.ownership-cache.max-entries:10000}") long maxEntries,
+                          @Value("${chat.ownership-cache.ttl-seconds:15}") long ttlSeconds) {
+        this.ownerByConversation = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+    
+    /**
+     * @param conversationId The ID of the conversation
+     * @param userId The ID of the user
+     * @return true if the user was recently confirmed as the owner of the live conversation
+     */
+    public boolean isKnownOwner(Long conversationId, Long userId) {
+        return Objects.equals(ownerByConversation.getIfPresent(conversationId), userId);
+    }
+    
+    /**
+     * Records the owner of a live conversation unless it has been deleted meanwhile.
+     * 
+     * @param conversationId The ID of the conversation
+     * @param userId The ID of the owner, as read from a row with is_deleted = false
+     */
+    public void recordOwner(Long conversationId, Long userId) {
+        ownerByConversation.asMap().compute(conversationId,
+                (id, current) -> DELETED.equals(current) ? current : userId);
+    }
+    
+    /**
+     * Marks a conversation as deleted once the delete has committed, so later
+     * {@link #recordOwner} calls from reads that saw the old row are ignored.
+     * 
+     * @param conversationId The ID of the deleted conversation
+     */
+    public void recordDeleted(Long conversationId) {
+        ownerByConversation.put(conversationId, DELETED);
+    }
+    
+    public void invalidate(Long conversationId) {
+        ownerByConversation.invalidate(conversationId);
+    }
+}
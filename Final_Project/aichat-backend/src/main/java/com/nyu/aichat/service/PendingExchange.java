@@ -0,0 +1,31 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.entity.Message;
+
+import java.util.List;
+
+/**
+ * Result of the first phase of a message exchange: the saved user message and the
+ * context that was built before it was appended. Both are detached once the phase commits.
+ */
+public class PendingExchange {
+    private final Message userMessage;
+    private final ContextWindow context;
+    
+    public PendingExchange(Message userMessage, ContextWindow context) {
+        this.userMessage = userMessage;
+        this.context = context;
+    }
+    
+    public Message getUserMessage() {
+        return userMessage;
+    }
+    
+    public List<Message> getContextMessages() {
+        return context.getMessages();
+    }
+    
+    public String getSummary() {
+        return context.getSummary();
+    }
+}
@@ -0,0 +1,389 @@
+package com.nyu.aichat.service;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking transport on a shared Apache HttpClient 5 async client (gemini.transport=pooled).
+ * Connections are pooled per host and kept alive, so TLS sessions are reused across calls,
+ * and HTTP/2 is negotiated via ALPN so concurrent calls multiplex over one connection.
+ * Streamed lines are delivered on a separate executor with flow control, so callbacks that
+ * block never stall the shared I/O reactor.
+ */
+public class PooledGeminiTransport implements GeminiTransport {
+    private static final Logger logger = LoggerFactory.getLogger(PooledGeminiTransport.class);
+    
+    private final CloseableHttpAsyncClient client;
+    private final String apiKey;
+    private final Executor streamDeliveryExecutor;
+    
+    /**
+     * @param streamDeliveryExecutor Runs streamed-line callbacks off the I/O reactor; should have
+     *                               a thread for every stream that can be open at once
+     */
+    public PooledGeminiTransport(String apiKey,
+                                 Executor streamDeliveryExecutor,
+                                 int connectTimeoutMs,
+                                 int responseTimeoutMs,
+                                 int maxConnectionsPerRoute,
+                                 int maxConnectionsTotal,
+                                 int idleTimeoutSeconds) {
+        this.apiKey = apiKey;
+        this.streamDeliveryExecutor = streamDeliveryExecutor;
+        
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnectionsTotal)
+                .build();
+        
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                .build();
+        
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+                .build();
+        this.client.start();
+        
+        logger.info("Started pooled Gemini transport (maxPerRoute={}, maxTotal={})",
+                maxConnectionsPerRoute, maxConnectionsTotal);
+    }
+    
+    @Override
+    public CompletableFuture<String> post(String url, String requestBody) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<SimpleHttpResponse> exchange = client.execute(buildRequest(url, requestBody),
+                new FutureCallback<SimpleHttpResponse>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        if (response.getCode() != HttpStatus.SC_OK) {
+                            logger.error("Gemini API returned error code: {}", response.getCode());
+                            result.completeExceptionally(
+                                    new IOException("Gemini API returned error code: " + response.getCode()));
+                            return;
+                        }
+                        result.complete(response.getBodyText());
+                    }
+                    
+                    @Override
+                    public void failed(Exception ex) {
+                        result.completeExceptionally(ex);
+                    }
+                    
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+        cancelExchangeWith(result, exchange);
+        return result;
+    }
+    
+    @Override
+    public CompletableFuture<Void> stream(String url, String requestBody, LineConsumer lineConsumer) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Future<Void> exchange = client.execute(
+                SimpleRequestProducer.create(buildRequest(url, requestBody)),
+                new LineResponseConsumer(lineConsumer, streamDeliveryExecutor),
+                new FutureCallback<Void>() {
+                    @Override
+                    public void completed(Void ignored) {
+                        result.complete(null);
+                    }
+                    
+                    @Override
+                    public void failed(Exception ex) {
+                        result.completeExceptionally(ex);
+                    }
+                    
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+        cancelExchangeWith(result, exchange);
+        return result;
+    }
+    
+    private SimpleHttpRequest buildRequest(String url, String requestBody) {
+        return SimpleRequestBuilder.post(url)
+                .setHeader(API_KEY_HEADER, apiKey)
+                .setBody(requestBody, ContentType.APPLICATION_JSON)
+                .build();
+    }
+    
+    /**
+     * Propagates cancellation or failure of the returned future to the in-flight exchange,
+     * so an abandoned call, or a stream whose consumer failed, releases its connection right away.
+     */
+    private static void cancelExchangeWith(CompletableFuture<?> result, Future<?> exchange) {
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                exchange.cancel(true);
+            }
+        });
+    }
+    
+    @Override
+    public void close() {
+        logger.info("Shutting down pooled Gemini transport");
+        client.close(CloseMode.GRACEFUL);
+    }
+    
+    /**
+     * Splits a streamed response body into UTF-8 lines as bytes arrive and hands them to the
+     * LineConsumer on the delivery executor, one batch at a time per response, never on the I/O
+     * reactor thread. Gemini may send at most WINDOW_BYTES ahead of delivery: the window is only
+     * re-opened as delivered batches free it, so a slow consumer (a stalled SSE client) pauses
+     * its own stream without holding the reactor that other calls share.
+     */
+    private static final class LineResponseConsumer implements AsyncResponseConsumer<Void> {
+        private static final int WINDOW_BYTES = 64 * 1024;
+        
+        private final LineConsumer lineConsumer;
+        private final Executor deliveryExecutor;
+        private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        
+        private volatile FutureCallback<Void> resultCallback;
+        
+        // Guarded by this
+        private CapacityChannel capacityChannel;
+        private long grantedBytes;      // Window the server may still use
+        private long undeliveredBytes;  // Read but not yet delivered
+        private final Deque<Batch> batches = new ArrayDeque<>();
+        private boolean draining;
+        private boolean ended;
+        
+        LineResponseConsumer(LineConsumer lineConsumer, Executor deliveryExecutor) {
+            this.lineConsumer = lineConsumer;
+            this.deliveryExecutor = deliveryExecutor;
+        }
+        
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                    FutureCallback<Void> resultCallback) throws HttpException, IOException {
+            if (response.getCode() != HttpStatus.SC_OK) {
+                logger.error("Gemini streaming API returned error code: {}", response.getCode());
+                throw new HttpException("Gemini streaming API returned error code: " + response.getCode());
+            }
+            this.resultCallback = resultCallback;
+            if (entityDetails == null) {
+                complete();
+            }
+        }
+        
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+            // 1xx responses carry no body
+        }
+        
+        @Override
+        public void updateCapacity(CapacityChannel channel) throws IOException {
+            synchronized (this) {
+                capacityChannel = channel;
+            }
+            openWindow();
+        }
+        
+        @Override
+        public void consume(ByteBuffer src) throws IOException {
+            int bytes = src.remaining();
+            List<String> lines = new ArrayList<>();
+            while (src.hasRemaining()) {
+                byte b = src.get();
+                if (b == '\n') {
+                    lines.add(takeLine());
+                } else {
+                    lineBuffer.write(b);
+                }
+            }
+            enqueue(new Batch(lines, bytes));
+        }
+        
+        @Override
+        public void streamEnd(List<? extends Header> trailers) throws IOException {
+            List<String> lines = new ArrayList<>();
+            if (lineBuffer.size() > 0) {
+                lines.add(takeLine());
+            }
+            enqueue(new Batch(lines, 0));
+            boolean completeNow;
+            synchronized (this) {
+                ended = true;
+                completeNow = !draining && batches.isEmpty();
+            }
+            if (completeNow) {
+                complete();
+            }
+        }
+        
+        private String takeLine() {
+            String line = new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8);
+            lineBuffer.reset();
+            return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        }
+        
+        private void enqueue(Batch batch) throws IOException {
+            synchronized (this) {
+                if (finished.get()) {
+                    return;
+                }
+                // HTTP/1.1 may read slightly past the window
+                grantedBytes = Math.max(0, grantedBytes - batch.bytes);
+                undeliveredBytes += batch.bytes;
+                batches.add(batch);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                deliveryExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                fail(e);
+                throw new IOException("Stream delivery pool is full", e);
+            }
+        }
+        
+        /**
+         * Delivers queued batches in order until the queue is empty, re-opening the window after each.
+         */
+        private void drain() {
+            while (true) {
+                Batch batch;
+                boolean completeNow = false;
+                synchronized (this) {
+                    batch = batches.poll();
+                    if (batch == null) {
+                        draining = false;
+                        completeNow = ended;
+                    }
+                }
+                if (batch == null) {
+                    if (completeNow) {
+                        complete();
+                    }
+                    return;
+                }
+                try {
+                    for (String line : batch.lines) {
+                        if (finished.get()) {
+                            return;
+                        }
+                        lineConsumer.accept(line);
+                    }
+                    synchronized (this) {
+                        undeliveredBytes -= batch.bytes;
+                    }
+                    openWindow();
+                } catch (Exception e) {
+                    fail(e);
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * Tops the server's window back up to WINDOW_BYTES minus what is still waiting for delivery.
+         */
+        private void openWindow() throws IOException {
+            CapacityChannel channel;
+            int increment;
+            synchronized (this) {
+                channel = capacityChannel;
+                long headroom = WINDOW_BYTES - undeliveredBytes - grantedBytes;
+                if (channel == null || headroom <= 0 || finished.get()) {
+                    return;
+                }
+                increment = (int) headroom;
+                grantedBytes += increment;
+            }
+            channel.update(increment);
+        }
+        
+        private void complete() {
+            if (finished.compareAndSet(false, true)) {
+                resultCallback.completed(null);
+            }
+        }
+        
+        private void fail(Exception cause) {
+            if (finished.compareAndSet(false, true)) {
+                synchronized (this) {
+                    batches.clear();
+                }
+                FutureCallback<Void> callback = resultCallback;
+                if (callback != null) {
+                    callback.failed(cause);
+                }
+            }
+        }
+        
+        @Override
+        public void failed(Exception cause) {
+            // Reported to the caller through the FutureCallback; just stop delivering
+            finished.set(true);
+            synchronized (this) {
+                batches.clear();
+            }
+        }
+        
+        @Override
+        public void releaseResources() {
+            // Queued batches are still delivered after the exchange releases the connection
+            lineBuffer.reset();
+        }
+        
+        private static final class Batch {
+            private final List<String> lines;
+            private final int bytes;
+            
+            Batch(List<String> lines, int bytes) {
+                this.lines = lines;
+                this.bytes = bytes;
+            }
+        }
+    }
+}
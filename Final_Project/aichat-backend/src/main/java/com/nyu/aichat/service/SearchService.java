@@ -0,0 +1,61 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.dto.response.SearchResultDto;
+import com.nyu.aichat.exception.ValidationException;
+import com.nyu.aichat.repository.MessageRepository;
+import com.nyu.aichat.repository.MessageSearchHit;
+import com.nyu.aichat.util.Constants;
+import com.nyu.aichat.util.ValidationUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full-text search over a user's message history.
+ * Backed by PostgreSQL's tsvector/GIN index on message.content.
+ */
+@Service
+public class SearchService {
+    private final MessageRepository messageRepository;
+    
+    @Autowired
+    public SearchService(MessageRepository messageRepository) {
+        this.messageRepository = messageRepository;
+    }
+    
+    /**
+     * Searches the messages of the user's non-deleted conversations, best matches first.
+     * The query accepts web-search syntax: quoted phrases, OR, and -excluded terms.
+     * 
+     * @param userId The ID of the user
+     * @param query The search text
+     * @param limit Maximum number of results
+     * @return Ranked results with highlighted snippets
+     * @throws ValidationException if the query or limit is invalid
+     */
+    @Transactional(readOnly = true)
+    public List<SearchResultDto> searchMessages(Long userId, String query, int limit) {
+        if (userId == null) {
+            throw new ValidationException(Constants.ERROR_USER_ID_NULL);
+        }
+        ValidationUtil.validateSearchQuery(query);
+        ValidationUtil.validateSearchLimit(limit);
+        
+        List<MessageSearchHit> hits = messageRepository.searchUserMessages(userId, query.trim(), limit);
+        List<SearchResultDto> results = new ArrayList<>(hits.size());
+        for (MessageSearchHit hit : hits) {
+            results.add(new SearchResultDto(
+                    hit.getConversationId(),
+                    hit.getConversationTitle(),
+                    hit.getMessageId(),
+                    hit.getRole().toLowerCase(),
+                    hit.getTs() != null ? hit.getTs().toInstant() : null,
+                    hit.getSnippet(),
+                    hit.getRank() != null ? hit.getRank() : 0.0));
+        }
+        return results;
+    }
+}
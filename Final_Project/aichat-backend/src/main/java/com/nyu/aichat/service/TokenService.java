@@ -0,0 +1,142 @@
+package com.nyu.aichat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and verifies stateless session tokens of the form "userId.expiresAtEpochSeconds.signature",
+ * where the signature is an HMAC-SHA256 of the first two parts.
+ * Verification needs no database access; recently verified tokens are cached so repeat
+ * requests skip the HMAC as well.
+ */
+@Service
+public class TokenService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    
+    private final SecretKeySpec secret;
+    private final long ttlSeconds;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Clock clock;
+    
+    public TokenService(@Value("${auth.token.secret:}") String secret,
+                        @Value("${auth.token.ttl-minutes:720}") long ttlMinutes,
+                        @Value("${auth.token.cache-max-entries:10000}") long cacheMaxEntries,
+                        Clock clock) {
+        this.clock = clock;
+        this.secret = new SecretKeySpec(secretBytes(secret), HMAC_ALGORITHM);
+        this.ttlSeconds = TimeUnit.MINUTES.toSeconds(ttlMinutes);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
+    }
+    
+    /**
+     * Issues a token for a user.
+     * 
+     * @param userId The authenticated user's ID
+     * @return The token and its expiry
+     */
+    public IssuedToken issue(Long userId) {
+        Instant expiresAt = clock.instant().plusSeconds(ttlSeconds);
+        String payload = userId + "." + expiresAt.getEpochSecond();
+        return new IssuedToken(payload + "." + sign(payload), expiresAt);
+    }
+    
+    /**
+     * Verifies a token's signature and expiry.
+     * 
+     * @param token The token from the Authorization header
+     * @return The user ID the token was issued to, or null if it is malformed, forged or expired
+     */
+    public Long verify(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified == null) {
+            verified = checkSignature(token);
+            if (verified == null) {
+                // Failures are not cached, so garbage tokens cannot flood the cache
+                return null;
+            }
+            verifiedTokens.put(token, verified);
+        }
+        if (verified.expiresAtEpochSecond <= clock.instant().getEpochSecond()) {
+            verifiedTokens.invalidate(token);
+            return null;
+        }
+        return verified.userId;
+    }
+    
+    private VerifiedToken checkSignature(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        int expiryStart = token.indexOf('.');
+        if (expiryStart <= 0 || signatureStart <= expiryStart) {
+            return null;
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+        try {
+            return new VerifiedToken(Long.parseLong(token.substring(0, expiryStart)),
+                    Long.parseLong(token.substring(expiryStart + 1, signatureStart)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secret);
+            return ENCODER.encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            // Every JRE is required to provide HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static byte[] secretBytes(String configured) {
+        if (configured == null || configured.isEmpty()) {
+            logger.warn("auth.token.secret is not set; using a random key, so tokens will not survive a restart "
+                    + "or be accepted by other instances");
+            byte[] random = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(random);
+            return random;
+        }
+        byte[] bytes = configured.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("auth.token.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        return bytes;
+    }
+    
+    private static final class VerifiedToken {
+        private final Long userId;
+        private final long expiresAtEpochSecond;
+        
+        private VerifiedToken(Long userId, long expiresAtEpochSecond) {
+            this.userId = userId;
+            this.expiresAtEpochSecond = expiresAtEpochSecond;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nyu.aichat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Blocking transport on HttpURLConnection, kept as a fallback (gemini.transport=url-connection).
+ * Runs every call on the caller's thread and returns an already-completed future.
+ */
+public class UrlConnectionGeminiTransport implements GeminiTransport {
+    private static final Logger logger = LoggerFactory.getLogger(UrlConnectionGeminiTransport.class);
+    
+    private final String apiKey;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    
+    public UrlConnectionGeminiTransport(String apiKey, int connectTimeoutMs, int readTimeoutMs) {
+        this.apiKey = apiKey;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+    
+    @Override
+    public CompletableFuture<String> post(String url, String requestBody) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            HttpURLConnection conn = openConnection(url, requestBody);
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                result.complete(br.lines().collect(Collectors.joining()));
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+    
+    @Override
+    public CompletableFuture<Void> stream(String url, String requestBody, LineConsumer lineConsumer) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            HttpURLConnection conn = openConnection(url, requestBody);
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    lineConsumer.accept(line);
+                }
+            }
+            result.complete(null);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+    
+    /**
+     * Opens a connection, sends the request body and checks the status code.
+     * 
+     * @param url The endpoint URL
+     * @param requestBody The JSON request body
+     * @return The connection, ready for reading the response body
+     * @throws Exception if the request fails or status code is not OK
+     */
+    private HttpURLConnection openConnection(String url, String requestBody) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty(API_KEY_HEADER, apiKey);
+        conn.setConnectTimeout(connectTimeoutMs);
+        conn.setReadTimeout(readTimeoutMs);
+        conn.setDoOutput(true);
+        
+        try (OutputStream os = conn.getOutputStream()) {
+            byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
+            os.write(input, 0, input.length);
+        }
+        
+        int responseCode = conn.getResponseCode();
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            logger.error("Gemini API returned error code: {}", responseCode);
+            throw new Exception("Gemini API returned error code: " + responseCode);
+        }
+        return conn;
+    }
+    
+    @Override
+    public void close() {
+        // Nothing to release; HttpURLConnection manages its own keep-alive cache
+    }
+}
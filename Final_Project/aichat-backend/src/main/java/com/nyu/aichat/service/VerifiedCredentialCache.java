@@ -0,0 +1,79 @@
+package com.nyu.aichat.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nyu.aichat.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of recent successful password verifications, so a client logging in
+ * again skips BCrypt. Keys are an HMAC of username and password under a random per-process
+ * secret, so neither the password nor an offline-crackable hash of it is kept in memory.
+ * An entry only counts while the user's stored hash is unchanged.
+ */
+@Component
+public class VerifiedCredentialCache {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    private final Cache<String, Verification> cache;
+    private final SecretKeySpec secret;
+    
+    public VerifiedCredentialCache(@Value("${auth.credential-cache.max-entries:10000}") long maxEntries,
+                                   @Value("${auth.credential-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.secret = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+    
+    /**
+     * @param user The user loaded for this login
+     * @param rawPassword The password presented
+     * @return true if the same credentials were verified recently against the user's current hash
+     */
+    public boolean isVerified(User user, String rawPassword) {
+        Verification verification = cache.getIfPresent(keyOf(user.getUsername(), rawPassword));
+        return verification != null
+                && verification.userId.equals(user.getId())
+                && verification.passHash.equals(user.getPassHash());
+    }
+    
+    public void recordVerified(User user, String rawPassword) {
+        cache.put(keyOf(user.getUsername(), rawPassword), new Verification(user.getId(), user.getPassHash()));
+    }
+    
+    private String keyOf(String username, String rawPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secret);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            // Every JRE is required to provide HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static final class Verification {
+        private final Long userId;
+        private final String passHash;
+        
+        private Verification(Long userId, String passHash) {
+            this.userId = userId;
+            this.passHash = passHash;
+        }
+    }
+}
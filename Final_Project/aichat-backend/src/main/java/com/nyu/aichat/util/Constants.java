@@ -24,6 +24,7 @@ public final class Constants {
     public static final String ERROR_CONVERSATION_ID_NULL = "Conversation ID cannot be null";
     public static final String ERROR_MESSAGE_TEXT_NULL = "Message text cannot be null";
     public static final String ERROR_PREVIOUS_MESSAGE_NOT_FOUND = "Previous message not found";
+    public static final String ERROR_JOB_NOT_FOUND = "Job not found or expired";
     
     // Titles
     public static final String DEFAULT_TITLE_NEW = "New Chat";
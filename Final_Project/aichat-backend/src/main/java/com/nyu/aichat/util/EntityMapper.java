@@ -1,11 +1,15 @@
 package com.nyu.aichat.util;
 
+import com.nyu.aichat.dto.response.ChatJobDto;
 import com.nyu.aichat.dto.response.ConversationDto;
 import com.nyu.aichat.dto.response.LoginResponse;
 import com.nyu.aichat.dto.response.MessageDto;
 import com.nyu.aichat.entity.Conversation;
 import com.nyu.aichat.entity.Message;
 import com.nyu.aichat.entity.User;
+import com.nyu.aichat.service.ChatJob;
+
+import java.time.Instant;
 
 /**
  * Utility class for mapping entities to DTOs.
@@ -46,13 +50,31 @@ public final class EntityMapper {
     }
     
     /**
-     * Maps a User entity to LoginResponse.
+     * Maps an asynchronous send to ChatJobDto.
+     * 
+     * @param job The job to map
+     * @return ChatJobDto with the job's status, and its reply or error once finished
+     */
+    public static ChatJobDto toDto(ChatJob job) {
+        return new ChatJobDto(
+            job.getId(),
+            job.getConversationId(),
+            job.getStatus().name(),
+            job.getAssistantMessage(),
+            job.getError()
+        );
+    }
+    
+    /**
+     * Maps a User entity and its session token to LoginResponse.
      * 
      * @param user The user entity to map
-     * @return LoginResponse containing user ID and username
+     * @param token The session token issued to the user
+     * @param expiresAt When the token expires
+     * @return LoginResponse containing user ID, username and token
      */
-    public static LoginResponse toLoginResponse(User user) {
-        return new LoginResponse(user.getId(), user.getUsername());
+    public static LoginResponse toLoginResponse(User user, String token, Instant expiresAt) {
+        return new LoginResponse(user.getId(), user.getUsername(), token, expiresAt);
     }
 }
 
@@ -7,6 +7,8 @@ import com.nyu.aichat.exception.ValidationException;
  * Centralizes header validation (DRY principle).
  */
 public final class HeaderValidator {
+    private static final long MAX_REQUEST_TIMEOUT_MS = 3_600_000L;
+    
     private HeaderValidator() {
         // Prevent instantiation
     }
@@ -25,5 +27,16 @@ public final class HeaderValidator {
             throw new ValidationException("X-User-Id must be a positive integer");
         }
     }
+    
+    /**
+     * Validates the optional X-Request-Timeout-Ms header is positive and at most one hour.
+     * 
+     * @param requestTimeoutMs The client's timeout in milliseconds, may be null
+     * @throws ValidationException if present and out of range
+     */
+    public static void validateRequestTimeout(Long requestTimeoutMs) {
+        if (requestTimeoutMs != null && (requestTimeoutMs <= 0 || requestTimeoutMs > MAX_REQUEST_TIMEOUT_MS)) {
+            throw new ValidationException("X-Request-Timeout-Ms must be between 1 and " + MAX_REQUEST_TIMEOUT_MS);
+        }
+    }
 }
-
@@ -22,5 +22,16 @@ public final class PathValidator {
             throw new ValidationException("Conversation ID must be a positive integer");
         }
     }
+    
+    /**
+     * Validates an optional message cursor is positive when present.
+     * 
+     * @param before The message ID cursor from the query string, may be null
+     * @throws ValidationException if before is non-positive
+     */
+    public static void validateCursor(Long before) {
+        if (before != null && before <= 0) {
+            throw new ValidationException("Cursor must be a positive message ID");
+        }
+    }
 }
-
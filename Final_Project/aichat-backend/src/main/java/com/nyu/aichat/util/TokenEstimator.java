@@ -0,0 +1,37 @@
+package com.nyu.aichat.util;
+
+/**
+ * Fast local estimate of Gemini token counts, used to size prompts without calling countTokens.
+ * Assumes about four characters per token, which holds well enough for English text.
+ */
+public final class TokenEstimator {
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_TURN = 4;
+    
+    private TokenEstimator() {
+        // Prevent instantiation
+    }
+    
+    /**
+     * Estimates the token count of a piece of text.
+     * 
+     * @param text The text to measure
+     * @return Estimated token count, 0 for null or empty text
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+    
+    /**
+     * Estimates the token count of one prompt turn, including its role prefix and line break.
+     * 
+     * @param content The message content
+     * @return Estimated token count
+     */
+    public static int estimateTurn(String content) {
+        return estimate(content) + TOKENS_PER_TURN;
+    }
+}
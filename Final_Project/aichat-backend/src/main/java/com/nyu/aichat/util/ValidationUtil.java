@@ -5,6 +5,10 @@ import com.nyu.aichat.exception.ValidationException;
 public class ValidationUtil {
     private static final int MAX_CONVERSATIONS_PER_USER = 50;
     private static final int MAX_MESSAGES_PER_CONVERSATION = 10000;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final long MAX_JOB_WAIT_MS = 30000;
     
     public static void validateUsername(String username) {
         if (username == null || username.trim().isEmpty()) {
@@ -41,5 +45,32 @@ public class ValidationUtil {
             throw new ValidationException("Maximum " + MAX_MESSAGES_PER_CONVERSATION + " messages allowed per conversation");
         }
     }
+    
+    public static void validatePageLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+    
+    public static void validateSearchQuery(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new ValidationException("Search query cannot be empty");
+        }
+        
+        if (query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new ValidationException("Search query cannot exceed " + MAX_SEARCH_QUERY_LENGTH + " characters");
+        }
+    }
+    
+    public static void validateSearchLimit(int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new ValidationException("Search limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+    }
+    
+    public static void validateJobWait(long waitMs) {
+        if (waitMs < 0 || waitMs > MAX_JOB_WAIT_MS) {
+            throw new ValidationException("waitMs must be between 0 and " + MAX_JOB_WAIT_MS);
+        }
+    }
 }
-
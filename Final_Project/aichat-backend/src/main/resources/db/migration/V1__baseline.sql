@@ -1,5 +1,5 @@
--- Create database (run manually)
--- CREATE DATABASE ai_chat;
+-- Baseline schema: app_user, conversation and message as first deployed.
+-- Databases created from the old schema.sql are adopted at this version (spring.flyway.baseline-on-migrate).
 
 -- Create app_user table
 CREATE TABLE IF NOT EXISTS app_user (
@@ -39,4 +39,3 @@ CREATE TABLE IF NOT EXISTS message (
 CREATE INDEX IF NOT EXISTS idx_message_conv_ts ON message(conv_id, ts ASC, id ASC);
 CREATE INDEX IF NOT EXISTS idx_message_prev ON message(conv_id, prev_message_id);
 CREATE INDEX IF NOT EXISTS idx_message_next ON message(conv_id, next_message_id);
-
@@ -0,0 +1,19 @@
+-- Live (non-deleted) conversation count, kept in step by the backend
+ALTER TABLE app_user ADD COLUMN IF NOT EXISTS conversation_count INT NOT NULL DEFAULT 0;
+
+-- Message count, incremented with every append
+ALTER TABLE conversation ADD COLUMN IF NOT EXISTS message_count INT NOT NULL DEFAULT 0;
+
+-- Rolling summary of turns that no longer fit the prompt's token budget
+ALTER TABLE conversation ADD COLUMN IF NOT EXISTS summary TEXT NULL;
+ALTER TABLE conversation ADD COLUMN IF NOT EXISTS summary_through_message_id BIGINT NULL;
+
+-- Full-text search: stemmed lexemes kept in step with content by PostgreSQL (12+)
+ALTER TABLE message ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('english', content)) STORED;
+CREATE INDEX IF NOT EXISTS idx_message_content_tsv ON message USING GIN (content_tsv);
+
+-- Backfill the counters for existing data
+UPDATE conversation c SET message_count = (SELECT COUNT(*) FROM message m WHERE m.conv_id = c.id);
+UPDATE app_user u SET conversation_count =
+    (SELECT COUNT(*) FROM conversation c WHERE c.user_id = u.id AND c.is_deleted = FALSE);
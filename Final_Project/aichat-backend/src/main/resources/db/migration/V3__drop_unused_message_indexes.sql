@@ -0,0 +1,11 @@
+-- No query reads idx_message_prev or idx_message_next: the linked list is walked by primary key
+-- and pages are read through idx_message_conv_ts. Both were updated on every insert, and
+-- idx_message_next also on every append, since setting the previous tail's next_message_id
+-- changed an indexed column and ruled out a HOT update. Messages are never deleted, so the
+-- self-referencing foreign keys do not need them either.
+DROP INDEX IF EXISTS idx_message_prev;
+DROP INDEX IF EXISTS idx_message_next;
+
+-- idx_message_conv_ts (conv_id, ts, id) already serves the newest-first reads
+-- (context window, message pages) with a backward index scan.
+-- It is not made covering: those reads select content, which is too wide for a btree INCLUDE.
@@ -0,0 +1,6 @@
+-- Message and Conversation ids come from Hibernate's pooled optimizer (allocationSize = 50):
+-- each nextval reserves the 50 ids ending at the returned value. The increment must match
+-- allocationSize. Rows inserted through the column defaults still get unique ids; each just
+-- consumes a block.
+ALTER SEQUENCE message_id_seq INCREMENT BY 50;
+ALTER SEQUENCE conversation_id_seq INCREMENT BY 50;
@@ -0,0 +1,9 @@
+-- Search filtered idx_message_content_tsv by user only after the index scan: every message in
+-- the database matching the query was fetched and then dropped by the join to conversation.
+-- A composite GIN on (conv_id, content_tsv) lets the search pass the user's conversation ids
+-- into the same index scan. btree_gin supplies the GIN operator class for the INT column; it
+-- is a trusted extension from PostgreSQL 13, so the database owner can create it.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX IF NOT EXISTS idx_message_conv_content_tsv ON message USING GIN (conv_id, content_tsv);
+DROP INDEX IF EXISTS idx_message_content_tsv;
@@ -0,0 +1,8 @@
+-- The summary watermark compared message ids, but pooled ids (V4) are not in insert order across
+-- nodes: another node's block can hold lower ids for newer messages, which were then never folded
+-- into the summary. The watermark becomes (ts, id), the order every read of message already uses.
+ALTER TABLE conversation ADD COLUMN IF NOT EXISTS summary_through_ts TIMESTAMPTZ NULL;
+
+UPDATE conversation c SET summary_through_ts = m.ts
+FROM message m
+WHERE m.id = c.summary_through_message_id;
@@ -0,0 +1,247 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.exception.AiServiceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(10)
+class AiCallGuardTest {
+    private static final long OPEN_MS = 30_000;
+    
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final AtomicInteger calls = new AtomicInteger();
+    
+    @Test
+    void bulkheadRejectsCallsBeyondMaxConcurrentWhenQueueIsFull() {
+        AiCallGuard guard = guard(2, 0, 3);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        guard.execute(call(first));
+        guard.execute(call(second));
+        assertEquals(2, guard.getInFlight());
+        
+        assertRejected(guard.execute(call(new CompletableFuture<>())));
+        assertEquals(2, calls.get());
+        assertEquals(1, guard.getBulkheadRejectedCount());
+        
+        first.complete("done");
+        assertEquals(1, guard.getInFlight());
+        CompletableFuture<String> third = CompletableFuture.completedFuture("third");
+        assertEquals("third", guard.execute(call(third)).join());
+    }
+    
+    @Test
+    void queuedCallTakesTheSlotWhenOneIsReleased() throws Exception {
+        AiCallGuard guard = new AiCallGuard(1, 1, 5_000, 3, OPEN_MS, clock);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        guard.execute(call(running));
+        
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<CompletableFuture<String>> queued = caller.submit(
+                    () -> guard.execute(call(CompletableFuture.completedFuture("queued"))));
+            while (guard.getQueued() == 0) {
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+            // The queue holds one caller; the next is turned away at once
+            assertRejected(guard.execute(call(new CompletableFuture<>())));
+            
+            running.complete("done");
+            assertEquals("queued", queued.get().join());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+    
+    @Test
+    void executeIfSlotFreeNeverQueues() {
+        AiCallGuard guard = new AiCallGuard(1, 10, 5_000, 3, OPEN_MS, clock);
+        guard.execute(call(new CompletableFuture<>()));
+        
+        assertRejected(guard.executeIfSlotFree(call(new CompletableFuture<>())));
+        assertEquals(1, calls.get());
+        assertEquals(0, guard.getQueued());
+    }
+    
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsWithoutCalling() {
+        AiCallGuard guard = guard(5, 0, 3);
+        guard.execute(call(failed()));
+        guard.execute(call(failed()));
+        assertEquals(AiCallGuard.CircuitState.CLOSED, guard.getState());
+        guard.execute(call(failed()));
+        assertEquals(AiCallGuard.CircuitState.OPEN, guard.getState());
+        
+        clock.advance(Duration.ofMillis(OPEN_MS - 1));
+        assertRejected(guard.execute(call(CompletableFuture.completedFuture("ok"))));
+        assertEquals(3, calls.get());
+        assertEquals(1, guard.getCircuitRejectedCount());
+    }
+    
+    @Test
+    void successResetsTheConsecutiveFailureCount() {
+        AiCallGuard guard = guard(5, 0, 2);
+        guard.execute(call(failed()));
+        guard.execute(call(CompletableFuture.completedFuture("ok")));
+        guard.execute(call(failed()));
+        
+        assertEquals(AiCallGuard.CircuitState.CLOSED, guard.getState());
+    }
+    
+    @Test
+    void halfOpenAllowsASingleTrialThatClosesOnSuccess() {
+        AiCallGuard guard = openGuard();
+        clock.advance(Duration.ofMillis(OPEN_MS));
+        
+        CompletableFuture<String> trial = new CompletableFuture<>();
+        guard.execute(call(trial));
+        assertEquals(AiCallGuard.CircuitState.HALF_OPEN, guard.getState());
+        
+        // Only the trial goes upstream until it completes
+        assertRejected(guard.execute(call(CompletableFuture.completedFuture("other"))));
+        assertEquals(2, calls.get());
+        
+        trial.complete("ok");
+        assertEquals(AiCallGuard.CircuitState.CLOSED, guard.getState());
+        assertEquals("next", guard.execute(call(CompletableFuture.completedFuture("next"))).join());
+    }
+    
+    @Test
+    void failedTrialReopensForAnotherFullPeriod() {
+        AiCallGuard guard = openGuard();
+        clock.advance(Duration.ofMillis(OPEN_MS));
+        
+        guard.execute(call(failed()));
+        assertEquals(AiCallGuard.CircuitState.OPEN, guard.getState());
+        
+        clock.advance(Duration.ofMillis(OPEN_MS - 1));
+        assertRejected(guard.execute(call(CompletableFuture.completedFuture("ok"))));
+        clock.advance(Duration.ofMillis(1));
+        assertEquals("ok", guard.execute(call(CompletableFuture.completedFuture("ok"))).join());
+        assertEquals(AiCallGuard.CircuitState.CLOSED, guard.getState());
+    }
+    
+    @Test
+    void lateSuccessDoesNotCloseAnOpenCircuit() {
+        AiCallGuard guard = guard(5, 0, 1);
+        CompletableFuture<String> admittedBeforeOpening = new CompletableFuture<>();
+        guard.execute(call(admittedBeforeOpening));
+        guard.execute(call(failed()));
+        assertEquals(AiCallGuard.CircuitState.OPEN, guard.getState());
+        
+        admittedBeforeOpening.complete("late");
+        assertEquals(AiCallGuard.CircuitState.OPEN, guard.getState());
+        assertRejected(guard.execute(call(CompletableFuture.completedFuture("ok"))));
+    }
+    
+    @Test
+    void lateOutcomesDuringHalfOpenDoNotDecideTheTrial() {
+        AiCallGuard guard = guard(5, 0, 1);
+        CompletableFuture<String> lateSuccess = new CompletableFuture<>();
+        CompletableFuture<String> lateFailure = new CompletableFuture<>();
+        guard.execute(call(lateSuccess));
+        guard.execute(call(lateFailure));
+        guard.execute(call(failed()));
+        clock.advance(Duration.ofMillis(OPEN_MS));
+        CompletableFuture<String> trial = new CompletableFuture<>();
+        guard.execute(call(trial));
+        
+        lateSuccess.complete("late");
+        lateFailure.completeExceptionally(new AiServiceException("late"));
+        assertEquals(AiCallGuard.CircuitState.HALF_OPEN, guard.getState());
+        // The trial is still the only call allowed through
+        assertRejected(guard.execute(call(CompletableFuture.completedFuture("other"))));
+        
+        trial.complete("ok");
+        assertEquals(AiCallGuard.CircuitState.CLOSED, guard.getState());
+    }
+    
+    @Test
+    void cancellationIsNeitherSuccessNorFailure() {
+        AiCallGuard guard = guard(5, 0, 1);
+        CompletableFuture<String> cancelled = new CompletableFuture<>();
+        guard.execute(call(cancelled));
+        cancelled.cancel(false);
+        
+        assertEquals(AiCallGuard.CircuitState.CLOSED, guard.getState());
+        assertEquals(0, guard.getFailureCount());
+        assertEquals(0, guard.getSuccessCount());
+        assertEquals(0, guard.getInFlight());
+    }
+    
+    @Test
+    void cancelledTrialFreesTheTrialSlotWithoutClosing() {
+        AiCallGuard guard = openGuard();
+        clock.advance(Duration.ofMillis(OPEN_MS));
+        CompletableFuture<String> trial = new CompletableFuture<>();
+        guard.execute(call(trial));
+        
+        trial.cancel(false);
+        assertEquals(AiCallGuard.CircuitState.HALF_OPEN, guard.getState());
+        
+        CompletableFuture<String> nextTrial = new CompletableFuture<>();
+        CompletableFuture<String> accepted = guard.execute(call(nextTrial));
+        assertSame(nextTrial, accepted);
+        assertEquals(3, calls.get());
+    }
+    
+    @Test
+    void callThatThrowsCountsAsFailureAndReleasesItsSlot() {
+        AiCallGuard guard = guard(1, 0, 1);
+        
+        assertThrows(IllegalStateException.class, () -> guard.execute(() -> {
+            throw new IllegalStateException("request could not be built");
+        }));
+        assertEquals(0, guard.getInFlight());
+        assertEquals(1, guard.getFailureCount());
+        assertEquals(AiCallGuard.CircuitState.OPEN, guard.getState());
+    }
+    
+    private AiCallGuard guard(int maxConcurrent, int maxQueue, int failureThreshold) {
+        return new AiCallGuard(maxConcurrent, maxQueue, 0, failureThreshold, OPEN_MS, clock);
+    }
+    
+    private AiCallGuard openGuard() {
+        AiCallGuard guard = guard(5, 0, 1);
+        guard.execute(call(failed()));
+        assertEquals(AiCallGuard.CircuitState.OPEN, guard.getState());
+        return guard;
+    }
+    
+    private <T> Supplier<CompletableFuture<T>> call(CompletableFuture<T> future) {
+        return () -> {
+            calls.incrementAndGet();
+            return future;
+        };
+    }
+    
+    private static CompletableFuture<String> failed() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.completeExceptionally(new AiServiceException("upstream failed"));
+        return future;
+    }
+    
+    private static void assertRejected(CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally(), "call was not rejected");
+        CompletionException failure = assertThrows(CompletionException.class, future::join);
+        assertTrue(failure.getCause() instanceof AiServiceException);
+        assertFalse(future.isCancelled());
+    }
+}
@@ -0,0 +1,155 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.exception.AiServiceException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiRequestHedgerTest {
+    private static final int MIN_SAMPLES = 20;
+    
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final DeterministicScheduler scheduler = new DeterministicScheduler(clock);
+    private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+    private final Supplier<CompletableFuture<String>> call = () -> {
+        CompletableFuture<String> attempt = new CompletableFuture<>();
+        attempts.add(attempt);
+        return attempt;
+    };
+    
+    @Test
+    void doesNotHedgeBeforeMinimumSamples() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(10, 0, 0, 5, 30_000, clock), 100);
+        recordLatencies(hedger, MIN_SAMPLES - 1, 500);
+        assertEquals(-1, hedger.getHedgeDelayMs());
+        
+        CompletableFuture<String> result = hedger.execute(call, AiRequestOptions.DEFAULT);
+        assertEquals(0, scheduler.pending());
+        
+        attempts.get(attempts.size() - 1).complete("reply");
+        assertEquals("reply", result.join());
+        assertEquals(500, hedger.getHedgeDelayMs());
+    }
+    
+    @Test
+    void hedgesAtThePercentileAndTakesTheFirstReply() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(10, 0, 0, 5, 30_000, clock), 100);
+        // 10, 20, ..., 200 ms: the 95th percentile is 190 ms
+        for (int i = 1; i <= MIN_SAMPLES; i++) {
+            recordLatencies(hedger, 1, i * 10L);
+        }
+        assertEquals(190, hedger.getHedgeDelayMs());
+        int before = attempts.size();
+        
+        CompletableFuture<String> result = hedger.execute(call, AiRequestOptions.DEFAULT);
+        CompletableFuture<String> primary = attempts.get(before);
+        scheduler.advance(Duration.ofMillis(189));
+        assertEquals(before + 1, attempts.size());
+        scheduler.advance(Duration.ofMillis(1));
+        assertEquals(before + 2, attempts.size());
+        
+        attempts.get(before + 1).complete("hedge reply");
+        assertEquals("hedge reply", result.join());
+        assertTrue(primary.isCancelled());
+        assertEquals(1, hedger.getHedgedCount());
+        assertEquals(1, hedger.getHedgeWinCount());
+    }
+    
+    @Test
+    void hedgeDelayNeverDropsBelowTheMinimum() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(10, 0, 0, 5, 30_000, clock), 300);
+        recordLatencies(hedger, MIN_SAMPLES, 10);
+        
+        assertEquals(300, hedger.getHedgeDelayMs());
+    }
+    
+    @Test
+    void hedgeIsSkippedWhenTheBulkheadIsFull() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(1, 5, 1_000, 5, 30_000, clock), 100);
+        recordLatencies(hedger, MIN_SAMPLES, 100);
+        int before = attempts.size();
+        
+        CompletableFuture<String> result = hedger.execute(call, AiRequestOptions.DEFAULT);
+        // The primary holds the only slot; the hedge must neither queue nor fail the request
+        scheduler.advance(Duration.ofMillis(100));
+        assertEquals(before + 1, attempts.size());
+        assertEquals(0, hedger.getHedgedCount());
+        assertFalse(result.isDone());
+        
+        attempts.get(before).complete("primary reply");
+        assertEquals("primary reply", result.join());
+    }
+    
+    @Test
+    void failsOnceTheDeadlinePassesAndCancelsTheAttempt() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(10, 0, 0, 5, 30_000, clock), 100);
+        AiRequestOptions options = AiRequestOptions.fromHeaders(null, 10_000L);
+        
+        CompletableFuture<String> result = hedger.execute(call, options);
+        scheduler.advance(Duration.ofMillis(5_000));
+        assertFalse(result.isDone());
+        scheduler.advance(Duration.ofMillis(5_000));
+        
+        assertDeadlineExceeded(result);
+        assertTrue(attempts.get(0).isCancelled());
+        assertEquals(1, hedger.getDeadlineExceededCount());
+    }
+    
+    @Test
+    void deadlineAlreadySpentFailsWithoutCallingUpstream() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(10, 0, 0, 5, 30_000, clock), 100);
+        // Less time left than the reserve kept for saving and writing the reply
+        AiRequestOptions options = AiRequestOptions.fromHeaders(null, 100L);
+        
+        assertDeadlineExceeded(hedger.execute(call, options));
+        assertTrue(attempts.isEmpty());
+        assertEquals(1, hedger.getDeadlineExceededCount());
+    }
+    
+    @Test
+    void withDeadlineBoundsACopyAndCancelsIt() {
+        AiRequestHedger hedger = hedger(new AiCallGuard(10, 0, 0, 5, 30_000, clock), 100);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        
+        CompletableFuture<String> bounded = hedger.withDeadline(upstream, AiRequestOptions.fromHeaders(null, 10_000L));
+        scheduler.advance(Duration.ofMillis(10_000));
+        
+        assertDeadlineExceeded(bounded);
+        assertTrue(upstream.isCancelled());
+    }
+    
+    private AiRequestHedger hedger(AiCallGuard guard, long minDelayMs) {
+        return new AiRequestHedger(guard, scheduler, true, 95, minDelayMs, 250, clock);
+    }
+    
+    /**
+     * Completes the given number of unhedged calls, each after latencyMs of clock time.
+     */
+    private void recordLatencies(AiRequestHedger hedger, int count, long latencyMs) {
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<String> result = hedger.execute(call, AiRequestOptions.DEFAULT);
+            clock.advance(Duration.ofMillis(latencyMs));
+            attempts.get(attempts.size() - 1).complete("reply");
+            assertEquals("reply", result.join());
+        }
+        scheduler.clear();
+    }
+    
+    private static void assertDeadlineExceeded(CompletableFuture<?> future) {
+        CompletionException failure = assertThrows(CompletionException.class, future::join);
+        assertTrue(failure.getCause() instanceof AiServiceException);
+        assertTrue(failure.getCause().getCause() instanceof TimeoutException);
+    }
+}
@@ -0,0 +1,207 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.entity.Conversation;
+import com.nyu.aichat.entity.Message;
+import com.nyu.aichat.entity.MessageRole;
+import com.nyu.aichat.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContextWindowBuilderTest {
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final String USER_TEXT = "next";
+    // 36 characters: 9 tokens plus 4 for the turn
+    private static final int TURN_TOKENS = 13;
+    
+    @Test
+    void packsNewestMessagesWhileTheBudgetAllows() {
+        // Room for exactly three turns after the current message
+        int budget = TokenEstimator.estimate(USER_TEXT) + 3 * TURN_TOKENS;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, 2000);
+        List<Message> recent = newestFirst(turns(1, 5));
+        
+        ContextWindow window = builder.build(new Conversation(), recent, USER_TEXT);
+        
+        assertEquals(Arrays.asList(5L, 4L, 3L), ids(window.getMessages()));
+    }
+    
+    @Test
+    void turnOneTokenOverTheBudgetIsEvicted() {
+        int budget = TokenEstimator.estimate(USER_TEXT) + 3 * TURN_TOKENS - 1;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, 2000);
+        
+        ContextWindow window = builder.build(new Conversation(), newestFirst(turns(1, 5)), USER_TEXT);
+        
+        assertEquals(Arrays.asList(5L, 4L), ids(window.getMessages()));
+    }
+    
+    @Test
+    void packsAtMostMaxMessages() {
+        ContextWindowBuilder builder = new ContextWindowBuilder(100_000, 4, 2000);
+        
+        ContextWindow window = builder.build(new Conversation(), newestFirst(turns(1, 10)), USER_TEXT);
+        
+        assertEquals(Arrays.asList(10L, 9L, 8L, 7L), ids(window.getMessages()));
+    }
+    
+    @Test
+    void stopsAtTheFirstTurnThatDoesNotFit() {
+        int budget = TokenEstimator.estimate(USER_TEXT) + 3 * TURN_TOKENS;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, 2000);
+        List<Message> recent = turns(1, 4);
+        recent.set(2, message(3L, 3, MessageRole.ASSISTANT, repeat('x', 400)));
+        
+        ContextWindow window = builder.build(new Conversation(), newestFirst(recent), USER_TEXT);
+        
+        // Turns 1 and 2 would fit, but the window stays contiguous
+        assertEquals(Collections.singletonList(4L), ids(window.getMessages()));
+    }
+    
+    @Test
+    void foldsEvictedTurnsIntoTheSummaryOldestFirst() {
+        int budget = TokenEstimator.estimate(USER_TEXT) + 2 * TURN_TOKENS;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, 2000);
+        Conversation conversation = new Conversation();
+        
+        ContextWindow window = builder.build(conversation, newestFirst(turns(1, 4)), USER_TEXT);
+        
+        assertEquals("user: Turn 1 about java.\nassistant: Turn 2 about java.\n", window.getSummary());
+        assertEquals(Long.valueOf(2L), conversation.getSummaryThroughMessageId());
+        assertEquals(START.plusSeconds(2), conversation.getSummaryThroughTs());
+    }
+    
+    @Test
+    void carriesTheSummaryOverWithoutRepeatingTurns() {
+        int budget = TokenEstimator.estimate(USER_TEXT) + 2 * TURN_TOKENS;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, 2000);
+        Conversation conversation = new Conversation();
+        builder.build(conversation, newestFirst(turns(1, 4)), USER_TEXT);
+        
+        // Two more turns: 3 and 4 are evicted now, 1 and 2 are already summarized
+        ContextWindow window = builder.build(conversation, newestFirst(turns(1, 6)), USER_TEXT);
+        
+        assertEquals("user: Turn 1 about java.\nassistant: Turn 2 about java.\n"
+                + "user: Turn 3 about java.\nassistant: Turn 4 about java.\n", window.getSummary());
+        assertEquals(Long.valueOf(4L), conversation.getSummaryThroughMessageId());
+        
+        // Nothing new evicted: the summary is unchanged
+        ContextWindow again = builder.build(conversation, newestFirst(turns(1, 6)), USER_TEXT);
+        assertEquals(window.getSummary(), again.getSummary());
+    }
+    
+    @Test
+    void watermarkOrdersByTimestampThenIdNotByIdAlone() {
+        int budget = TokenEstimator.estimate(USER_TEXT) + TURN_TOKENS;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, 2000);
+        Conversation conversation = new Conversation();
+        conversation.setSummary("user: Turn 1 about java.\n");
+        conversation.setSummaryThroughTs(START.plusSeconds(1));
+        conversation.setSummaryThroughMessageId(500L);
+        
+        // Pooled ids: later turns from another node's block carry lower ids than the watermark
+        List<Message> recent = Arrays.asList(
+                message(500L, 1, MessageRole.USER, turnText(1)),
+                message(60L, 2, MessageRole.ASSISTANT, turnText(2)),
+                message(450L, 1, MessageRole.ASSISTANT, turnText(99)),
+                message(510L, 3, MessageRole.USER, turnText(3)),
+                message(70L, 4, MessageRole.ASSISTANT, turnText(4)));
+        recent.sort((a, b) -> {
+            int byTs = b.getTimestamp().compareTo(a.getTimestamp());
+            return byTs != 0 ? byTs : b.getId().compareTo(a.getId());
+        });
+        
+        ContextWindow window = builder.build(conversation, recent, USER_TEXT);
+        
+        // 450 shares the watermark's ts with a lower id, so it counts as already summarized
+        assertEquals(Collections.singletonList(70L), ids(window.getMessages()));
+        assertEquals("user: Turn 1 about java.\nassistant: Turn 2 about java.\nuser: Turn 3 about java.\n",
+                window.getSummary());
+        assertEquals(Long.valueOf(510L), conversation.getSummaryThroughMessageId());
+        assertEquals(START.plusSeconds(3), conversation.getSummaryThroughTs());
+    }
+    
+    @Test
+    void dropsOldestSummaryLinesBeyondTheCap() {
+        String keptLines = "assistant: Turn 2 about java.\nuser: Turn 3 about java.\n";
+        int budget = TokenEstimator.estimate(USER_TEXT) + TURN_TOKENS;
+        ContextWindowBuilder builder = new ContextWindowBuilder(budget, 16, keptLines.length());
+        Conversation conversation = new Conversation();
+        
+        ContextWindow window = builder.build(conversation, newestFirst(turns(1, 4)), USER_TEXT);
+        
+        assertEquals(keptLines, window.getSummary());
+        assertEquals(Long.valueOf(3L), conversation.getSummaryThroughMessageId());
+    }
+    
+    @Test
+    void leavesTheSummaryEmptyWhenEverythingFits() {
+        ContextWindowBuilder builder = new ContextWindowBuilder(100_000, 16, 2000);
+        Conversation conversation = new Conversation();
+        
+        ContextWindow window = builder.build(conversation, newestFirst(turns(1, 4)), USER_TEXT);
+        
+        assertEquals(4, window.getMessages().size());
+        assertNull(window.getSummary());
+        assertNull(conversation.getSummaryThroughMessageId());
+    }
+    
+    @Test
+    void rejectsWindowsThatLeaveNoTurnsToSummarize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ContextWindowBuilder(2000, ContextWindowCache.WINDOW_SIZE - 1, 2000));
+        // One exchange below the cached window is the largest allowed
+        new ContextWindowBuilder(2000, ContextWindowCache.WINDOW_SIZE - 2, 2000);
+    }
+    
+    /**
+     * Alternating turns with ids first..last, one second apart, oldest first.
+     */
+    private static List<Message> turns(int first, int last) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            messages.add(message((long) i, i, i % 2 == 1 ? MessageRole.USER : MessageRole.ASSISTANT, turnText(i)));
+        }
+        return messages;
+    }
+    
+    /**
+     * 36 characters whose first sentence is the summary excerpt.
+     */
+    private static String turnText(int turn) {
+        String text = String.format("Turn %d about java. ", turn);
+        return text + repeat('.', 36 - text.length());
+    }
+    
+    private static Message message(Long id, int second, MessageRole role, String content) {
+        Message message = new Message(null, role, content);
+        message.setId(id);
+        message.setTimestamp(START.plusSeconds(second));
+        return message;
+    }
+    
+    private static List<Message> newestFirst(List<Message> oldestFirst) {
+        List<Message> reversed = new ArrayList<>(oldestFirst);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+    
+    private static List<Long> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).collect(Collectors.toList());
+    }
+    
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
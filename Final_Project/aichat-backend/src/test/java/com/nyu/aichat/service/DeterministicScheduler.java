@@ -0,0 +1,111 @@
+package com.nyu.aichat.service;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler that runs a task only once advance() moves the clock past its start time,
+ * on the thread that calls advance().
+ */
+final class DeterministicScheduler extends ThreadPoolTaskScheduler {
+    private final MutableClock clock;
+    private final List<Task> tasks = new ArrayList<>();
+    
+    DeterministicScheduler(MutableClock clock) {
+        this.clock = clock;
+    }
+    
+    @Override
+    public ScheduledFuture<?> schedule(Runnable runnable, Date startTime) {
+        Task task = new Task(runnable, startTime.toInstant());
+        tasks.add(task);
+        return task;
+    }
+    
+    int pending() {
+        return (int) tasks.stream().filter(task -> !task.isDone()).count();
+    }
+    
+    void clear() {
+        tasks.clear();
+    }
+    
+    void advance(Duration duration) {
+        clock.advance(duration);
+        List<Task> due = new ArrayList<>();
+        for (Task task : tasks) {
+            if (!task.isDone() && !task.startTime.isAfter(clock.instant())) {
+                due.add(task);
+            }
+        }
+        due.sort((a, b) -> a.startTime.compareTo(b.startTime));
+        due.forEach(Task::run);
+    }
+    
+    private static final class Task implements ScheduledFuture<Object> {
+        private final Runnable runnable;
+        private final Instant startTime;
+        private boolean done;
+        private boolean cancelled;
+        
+        Task(Runnable runnable, Instant startTime) {
+            this.runnable = runnable;
+            this.startTime = startTime;
+        }
+        
+        void run() {
+            if (!done) {
+                done = true;
+                runnable.run();
+            }
+        }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            cancelled = true;
+            return true;
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+        
+        @Override
+        public Object get() {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
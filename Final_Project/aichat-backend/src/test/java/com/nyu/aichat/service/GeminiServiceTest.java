@@ -0,0 +1,124 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.exception.AiServiceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiServiceTest {
+    private static final long TIMEOUT_MS = 10_000;
+    
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final DeterministicScheduler scheduler = new DeterministicScheduler(clock);
+    private final AiCallGuard guard = new AiCallGuard(10, 0, 0, 5, 30_000, clock);
+    private final AiRequestHedger hedger = new AiRequestHedger(guard, scheduler, true, 95, 100, 250, clock);
+    private final StubTransport transport = new StubTransport();
+    
+    @Test
+    void unsharedCallIsCancelledAtTheDeadline() {
+        GeminiService service = service(new AiResponseCache(false, 100, 60));
+        
+        CompletableFuture<String> reply = generate(service, TIMEOUT_MS);
+        assertEquals(1, transport.posts.size());
+        assertEquals(1, guard.getInFlight());
+        
+        scheduler.advance(Duration.ofMillis(TIMEOUT_MS));
+        
+        assertDeadlineExceeded(reply);
+        assertTrue(transport.posts.get(0).isCancelled());
+        assertEquals(0, guard.getInFlight());
+        // Nothing is left to hedge once the caller's deadline has passed
+        scheduler.advance(Duration.ofMillis(TIMEOUT_MS));
+        assertEquals(1, transport.posts.size());
+    }
+    
+    @Test
+    void sharedCallRunsUntilTheLastCallerGivesUp() {
+        GeminiService service = service(new AiResponseCache(true, 100, 60));
+        
+        CompletableFuture<String> first = generate(service, TIMEOUT_MS);
+        CompletableFuture<String> second = generate(service, 2 * TIMEOUT_MS);
+        assertEquals(1, transport.posts.size());
+        
+        scheduler.advance(Duration.ofMillis(TIMEOUT_MS));
+        assertDeadlineExceeded(first);
+        assertFalse(second.isDone());
+        assertFalse(transport.posts.get(0).isCancelled());
+        assertEquals(1, guard.getInFlight());
+        
+        scheduler.advance(Duration.ofMillis(TIMEOUT_MS));
+        assertDeadlineExceeded(second);
+        assertTrue(transport.posts.get(0).isCancelled());
+        assertEquals(0, guard.getInFlight());
+    }
+    
+    @Test
+    void sharedCallStillAnswersTheCallersThatWaited() {
+        GeminiService service = service(new AiResponseCache(true, 100, 60));
+        
+        CompletableFuture<String> first = generate(service, TIMEOUT_MS);
+        CompletableFuture<String> second = generate(service, 2 * TIMEOUT_MS);
+        scheduler.advance(Duration.ofMillis(TIMEOUT_MS));
+        assertDeadlineExceeded(first);
+        
+        transport.posts.get(0).complete("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"hi\"}]}}]}");
+        assertEquals("hi", second.join());
+        assertEquals(0, guard.getInFlight());
+    }
+    
+    private GeminiService service(AiResponseCache cache) {
+        GeminiService service = new GeminiService(transport, guard, hedger, cache,
+                new ChatMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "geminiApiKey", "test-key");
+        ReflectionTestUtils.setField(service, "geminiBaseUrl", "http://localhost");
+        return service;
+    }
+    
+    private static CompletableFuture<String> generate(GeminiService service, long timeoutMs) {
+        return service.generateResponseAsync("hello", null, Collections.emptyList(),
+                AiRequestOptions.fromHeaders(null, timeoutMs));
+    }
+    
+    private static void assertDeadlineExceeded(CompletableFuture<String> reply) {
+        CompletionException failure = assertThrows(CompletionException.class, reply::join);
+        assertTrue(failure.getCause() instanceof AiServiceException);
+        assertTrue(failure.getCause().getCause() instanceof TimeoutException);
+    }
+    
+    /**
+     * Transport whose calls only finish when a test completes them.
+     */
+    private static final class StubTransport implements GeminiTransport {
+        private final List<CompletableFuture<String>> posts = new ArrayList<>();
+        
+        @Override
+        public CompletableFuture<String> post(String url, String requestBody) {
+            CompletableFuture<String> post = new CompletableFuture<>();
+            posts.add(post);
+            return post;
+        }
+        
+        @Override
+        public CompletableFuture<Void> stream(String url, String requestBody, LineConsumer lineConsumer) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
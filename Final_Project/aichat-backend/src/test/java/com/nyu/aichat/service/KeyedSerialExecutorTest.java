@@ -0,0 +1,297 @@
+package com.nyu.aichat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(10)
+class KeyedSerialExecutorTest {
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final ThreadPoolTaskScheduler waitTimer = new ThreadPoolTaskScheduler();
+    
+    @AfterEach
+    void shutDown() {
+        callers.shutdownNow();
+        waitTimer.shutdown();
+    }
+    
+    @Test
+    void submitRunsTasksForOneKeyInArrivalOrder() {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(1000);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> order = new ArrayList<>();
+        
+        CompletableFuture<Integer> first = queue.submit(1L, () -> record(order, 1), executor);
+        CompletableFuture<Integer> second = queue.submit(1L, () -> record(order, 2), executor);
+        CompletableFuture<Integer> third = queue.submit(1L, () -> record(order, 3), executor);
+        
+        // Only the head of the key's queue is handed to the executor
+        assertEquals(1, executor.pending());
+        executor.runAll();
+        
+        assertEquals(Arrays.asList(1, 2, 3), order);
+        assertEquals(3, third.join().intValue());
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals(2, queue.getContendedCount());
+    }
+    
+    @Test
+    void submitStartsTasksForDifferentKeysAtOnce() {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(1000);
+        ManualExecutor executor = new ManualExecutor();
+        
+        queue.submit(1L, () -> 1, executor);
+        queue.submit(2L, () -> 2, executor);
+        
+        assertEquals(2, executor.pending());
+        assertEquals(0, queue.getContendedCount());
+    }
+    
+    @Test
+    void runSeriallyWaitsForEarlierTaskOnSameKey() throws Exception {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(5000);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        
+        Future<?> first = callers.submit(() -> queue.runSerially(1L, () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            return record(order, 1);
+        }));
+        firstStarted.await();
+        Future<?> second = callers.submit(() -> queue.runSerially(1L, () -> record(order, 2)));
+        
+        waitUntil(() -> queue.getContendedCount() == 1);
+        assertTrue(order.isEmpty(), "second task ran while the first was still running");
+        releaseFirst.countDown();
+        first.get();
+        second.get();
+        
+        assertEquals(Arrays.asList(1, 2), order);
+    }
+    
+    @Test
+    void runSeriallyRunsDifferentKeysInParallel() throws Exception {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(5000);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        
+        Future<?> first = callers.submit(() -> queue.runSerially(1L, () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            return null;
+        }));
+        firstStarted.await();
+        
+        // Completes on this thread while key 1 is still busy
+        assertEquals("other", queue.runSerially(2L, () -> "other"));
+        assertFalse(first.isDone());
+        releaseFirst.countDown();
+        first.get();
+        assertEquals(0, queue.getContendedCount());
+    }
+    
+    @Test
+    void removesKeyAfterLastTask() {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(1000);
+        ManualExecutor executor = new ManualExecutor();
+        
+        queue.submit(1L, () -> 1, executor);
+        queue.submit(1L, () -> 2, executor);
+        assertEquals(1, queue.getActiveKeys());
+        
+        executor.runNext();
+        // The second task is still queued, so the key stays
+        assertEquals(1, queue.getActiveKeys());
+        executor.runNext();
+        assertEquals(0, queue.getActiveKeys());
+        
+        queue.runSerially(2L, () -> null);
+        assertEquals(0, queue.getActiveKeys());
+        assertThrows(IllegalStateException.class, () -> queue.runSerially(3L, () -> {
+            throw new IllegalStateException("task failed");
+        }));
+        assertEquals(0, queue.getActiveKeys());
+    }
+    
+    @Test
+    void rejectsTaskThatWaitsLongerThanMaxWait() throws Exception {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(50);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        
+        Future<?> first = callers.submit(() -> queue.runSerially(1L, () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            return record(order, 1);
+        }));
+        firstStarted.await();
+        
+        assertThrows(TaskRejectedException.class, () -> queue.runSerially(1L, () -> record(order, 2)));
+        assertEquals(1, queue.getTimeoutCount());
+        
+        // The timed-out task keeps its place until the first finishes, so later tasks cannot overtake it
+        assertEquals(1, queue.getActiveKeys());
+        releaseFirst.countDown();
+        first.get();
+        waitUntil(() -> queue.getActiveKeys() == 0);
+        
+        assertEquals(3, queue.runSerially(1L, () -> record(order, 3)).intValue());
+        assertEquals(Arrays.asList(1, 3), order);
+    }
+    
+    @Test
+    void submitWithinMaxWaitRejectsTaskThatWaitsTooLongWithoutRunningIt() throws Exception {
+        waitTimer.initialize();
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(50, waitTimer);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        ManualExecutor executor = new ManualExecutor();
+        
+        CompletableFuture<Integer> first = queue.submitWithinMaxWait(1L, () -> record(order, 1), executor);
+        CompletableFuture<Integer> second = queue.submitWithinMaxWait(1L, () -> record(order, 2), executor);
+        
+        ExecutionException failure = assertThrows(ExecutionException.class, second::get);
+        assertTrue(failure.getCause() instanceof TaskRejectedException);
+        assertEquals(1, queue.getTimeoutCount());
+        // No thread waited: the only task handed to the executor is the first
+        assertEquals(1, executor.pending());
+        
+        // The timed-out task keeps its place until the first finishes, so later tasks cannot overtake it
+        CompletableFuture<Integer> third = queue.submit(1L, () -> record(order, 3), executor);
+        assertEquals(1, executor.pending());
+        executor.runNext();
+        assertEquals(1, first.get().intValue());
+        // The timer thread may still be finishing the timed-out task and hand the third over from there
+        waitUntil(() -> executor.pending() == 1);
+        executor.runNext();
+        
+        assertEquals(3, third.get().intValue());
+        assertEquals(Arrays.asList(1, 3), order);
+        assertEquals(0, queue.getActiveKeys());
+    }
+    
+    @Test
+    void submitWithinMaxWaitRunsTaskWhoseTurnComesInTime() throws Exception {
+        waitTimer.initialize();
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(5000, waitTimer);
+        ManualExecutor executor = new ManualExecutor();
+        
+        queue.submitWithinMaxWait(1L, () -> 1, executor);
+        CompletableFuture<Integer> second = queue.submitWithinMaxWait(1L, () -> 2, executor);
+        executor.runAll();
+        
+        assertEquals(2, second.get().intValue());
+        assertEquals(0, queue.getTimeoutCount());
+        assertEquals(0, queue.getActiveKeys());
+    }
+    
+    @Test
+    void submitThrowsAndFreesKeyWhenExecutorRejectsAtOnce() {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(1000);
+        Executor full = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        
+        assertThrows(RejectedExecutionException.class, () -> queue.submit(1L, () -> 1, full));
+        assertEquals(0, queue.getActiveKeys());
+        assertEquals(0, queue.getRunCount());
+    }
+    
+    @Test
+    void submitFailsFutureWhenExecutorRejectsAfterWaiting() {
+        KeyedSerialExecutor<Long> queue = new KeyedSerialExecutor<>(1000);
+        ManualExecutor executor = new ManualExecutor();
+        
+        queue.submit(1L, () -> 1, executor);
+        CompletableFuture<Integer> second = queue.submit(1L, () -> 2, executor);
+        executor.rejectFromNowOn();
+        executor.runNext();
+        
+        ExecutionException failure = assertThrows(ExecutionException.class, second::get);
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        assertEquals(0, queue.getActiveKeys());
+    }
+    
+    private static int record(List<Integer> order, int task) {
+        order.add(task);
+        return task;
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+    
+    /**
+     * Queues tasks until the test runs them, so start order is observable.
+     */
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean rejecting;
+        
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (rejecting) {
+                throw new RejectedExecutionException("rejecting");
+            }
+            tasks.add(task);
+        }
+        
+        synchronized int pending() {
+            return tasks.size();
+        }
+        
+        synchronized void rejectFromNowOn() {
+            rejecting = true;
+        }
+        
+        void runNext() {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.remove();
+            }
+            task.run();
+        }
+        
+        void runAll() {
+            while (pending() > 0) {
+                runNext();
+            }
+        }
+    }
+}
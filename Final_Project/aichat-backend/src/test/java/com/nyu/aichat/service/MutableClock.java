@@ -0,0 +1,37 @@
+package com.nyu.aichat.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock that only moves when a test advances it.
+ */
+final class MutableClock extends Clock {
+    private Instant now;
+    
+    MutableClock(Instant start) {
+        this.now = start;
+    }
+    
+    void advance(Duration duration) {
+        now = now.plus(duration);
+    }
+    
+    @Override
+    public Instant instant() {
+        return now;
+    }
+    
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+}
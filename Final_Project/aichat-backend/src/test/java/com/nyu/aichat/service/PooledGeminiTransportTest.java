@@ -0,0 +1,231 @@
+package com.nyu.aichat.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.core5.http.HttpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(20)
+class PooledGeminiTransportTest {
+    private static final String DELIVERY_THREAD = "stream-delivery-";
+    
+    private final AtomicInteger deliveryThreads = new AtomicInteger();
+    private final ExecutorService deliveryExecutor = Executors.newFixedThreadPool(4,
+            task -> new Thread(task, DELIVERY_THREAD + deliveryThreads.incrementAndGet()));
+    private HttpServer server;
+    private PooledGeminiTransport transport;
+    
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        transport = transport(10_000);
+    }
+    
+    @AfterEach
+    void stopServer() {
+        transport.close();
+        server.stop(0);
+        deliveryExecutor.shutdownNow();
+    }
+    
+    @Test
+    void postSendsApiKeyHeaderAndReturnsBody() throws Exception {
+        AtomicReference<String> apiKey = new AtomicReference<>();
+        server.createContext("/post", exchange -> {
+            apiKey.set(exchange.getRequestHeaders().getFirst(GeminiTransport.API_KEY_HEADER));
+            respond(exchange, 200, "{\"ok\":true}");
+        });
+        
+        assertEquals("{\"ok\":true}", transport.post(url("/post"), "{}").get());
+        assertEquals("test-key", apiKey.get());
+    }
+    
+    @Test
+    void streamJoinsLinesSplitAcrossChunks() throws Exception {
+        server.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (String chunk : Arrays.asList("data: one\r\nda", "ta: t", "wo\n\ndata: ", "three")) {
+                    body.write(chunk.getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    sleep(20);
+                }
+            }
+        });
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        
+        transport.stream(url("/stream"), "{}", line -> {
+            lines.add(line);
+            threads.add(Thread.currentThread().getName());
+        }).get();
+        
+        assertEquals(Arrays.asList("data: one", "data: two", "", "data: three"), lines);
+        // Delivered off the I/O reactor
+        assertTrue(threads.stream().allMatch(name -> name.startsWith(DELIVERY_THREAD)), threads.toString());
+    }
+    
+    @Test
+    void streamDeliversLargeBodyInOrderThroughTheFlowControlWindow() throws Exception {
+        int lineCount = 50_000;   // ~1 MB, many times the 64 KB window
+        server.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < lineCount; i++) {
+                    body.write(String.format("data: line %08d%n", i).getBytes(StandardCharsets.UTF_8));
+                    if (i % 1000 == 0) {
+                        body.flush();
+                    }
+                }
+            }
+        });
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        
+        // A consumer slower than the server, so the window has to close and re-open
+        transport.stream(url("/stream"), "{}", line -> {
+            lines.add(line);
+            if (lines.size() % 5_000 == 0) {
+                sleep(50);
+            }
+        }).get();
+        
+        assertEquals(lineCount, lines.size());
+        for (int i = 0; i < lineCount; i++) {
+            assertEquals(String.format("data: line %08d", i), lines.get(i));
+        }
+    }
+    
+    @Test
+    void streamFailsOnErrorStatus() {
+        server.createContext("/stream", exchange -> respond(exchange, 500, "data: ignored\n"));
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> transport.stream(url("/stream"), "{}", lines::add).get());
+        
+        assertTrue(failure.getCause() instanceof HttpException, failure.getCause().toString());
+        assertTrue(lines.isEmpty());
+    }
+    
+    @Test
+    void cancellingMidStreamClosesTheExchange() throws Exception {
+        CountDownLatch serverSawDisconnect = new CountDownLatch(1);
+        server.createContext("/stream", endlessStream(serverSawDisconnect));
+        CountDownLatch firstLine = new CountDownLatch(1);
+        
+        CompletableFuture<Void> result = transport.stream(url("/stream"), "{}", line -> firstLine.countDown());
+        assertTrue(firstLine.await(5, TimeUnit.SECONDS));
+        result.cancel(true);
+        
+        assertTrue(serverSawDisconnect.await(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void consumerFailureFailsTheStreamAndClosesTheExchange() throws Exception {
+        CountDownLatch serverSawDisconnect = new CountDownLatch(1);
+        server.createContext("/stream", endlessStream(serverSawDisconnect));
+        IllegalStateException consumerError = new IllegalStateException("client gone");
+        
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> transport.stream(url("/stream"), "{}", line -> {
+                    throw consumerError;
+                }).get());
+        
+        assertEquals(consumerError, failure.getCause());
+        assertTrue(serverSawDisconnect.await(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void streamFailsWhenServerStallsPastResponseTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/stream", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("data: first\n".getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException | IOException e) {
+                // Client gave up
+            }
+        });
+        transport.close();
+        transport = transport(300);
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        
+        try {
+            assertThrows(ExecutionException.class, () -> transport.stream(url("/stream"), "{}", lines::add).get());
+            assertEquals(Collections.singletonList("data: first"), lines);
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    private PooledGeminiTransport transport(int responseTimeoutMs) {
+        return new PooledGeminiTransport("test-key", deliveryExecutor, 2_000, responseTimeoutMs, 4, 8, 30);
+    }
+    
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+    
+    /**
+     * Streams lines until writing fails because the client closed the connection.
+     */
+    private static HttpHandler endlessStream(CountDownLatch serverSawDisconnect) {
+        return exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 2_000; i++) {
+                    body.write("data: more\n".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    sleep(10);
+                }
+            } catch (IOException e) {
+                serverSawDisconnect.countDown();
+            }
+        };
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.nyu.aichat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenServiceTest {
+    private static final String SECRET = "test-secret-that-is-at-least-32-bytes-long";
+    private static final long TTL_MINUTES = 60;
+    
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final TokenService tokenService = new TokenService(SECRET, TTL_MINUTES, 100, clock);
+    
+    @Test
+    void issuedTokenVerifiesToItsUser() {
+        IssuedToken issued = tokenService.issue(42L);
+        
+        assertEquals(clock.instant().plus(Duration.ofMinutes(TTL_MINUTES)), issued.getExpiresAt());
+        assertEquals(Long.valueOf(42L), tokenService.verify(issued.getToken()));
+    }
+    
+    @Test
+    void tokenExpiresAfterTtl() {
+        String token = tokenService.issue(42L).getToken();
+        
+        clock.advance(Duration.ofMinutes(TTL_MINUTES).minusSeconds(1));
+        assertEquals(Long.valueOf(42L), new TokenService(SECRET, TTL_MINUTES, 100, clock).verify(token));
+        clock.advance(Duration.ofSeconds(1));
+        assertNull(new TokenService(SECRET, TTL_MINUTES, 100, clock).verify(token));
+    }
+    
+    @Test
+    void cachedTokenIsStillRejectedAfterExpiry() {
+        String token = tokenService.issue(42L).getToken();
+        // Verified once, so later checks are cache hits that skip the HMAC
+        assertEquals(Long.valueOf(42L), tokenService.verify(token));
+        
+        clock.advance(Duration.ofMinutes(TTL_MINUTES));
+        assertNull(tokenService.verify(token));
+        assertNull(tokenService.verify(token));
+    }
+    
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = tokenService.issue(42L).getToken();
+        String[] parts = token.split("\\.");
+        
+        // Another user's ID or a later expiry under the original signature
+        assertNull(tokenService.verify("43." + parts[1] + "." + parts[2]));
+        assertNull(tokenService.verify(parts[0] + "." + (Long.parseLong(parts[1]) + 3600) + "." + parts[2]));
+        // Altered signature
+        char last = parts[2].charAt(parts[2].length() - 1);
+        String altered = parts[2].substring(0, parts[2].length() - 1) + (last == 'A' ? 'B' : 'A');
+        assertNull(tokenService.verify(parts[0] + "." + parts[1] + "." + altered));
+        // Signed with a different secret
+        TokenService otherNode = new TokenService("another-secret-that-is-also-32-bytes-long", TTL_MINUTES, 100, clock);
+        assertNull(tokenService.verify(otherNode.issue(42L).getToken()));
+    }
+    
+    @Test
+    void malformedTokenIsRejected() {
+        String token = tokenService.issue(42L).getToken();
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        
+        assertNull(tokenService.verify(""));
+        assertNull(tokenService.verify("garbage"));
+        assertNull(tokenService.verify("42.1700000000"));
+        assertNull(tokenService.verify(".1700000000." + signature));
+        assertNull(tokenService.verify("42.." + signature));
+        assertNull(tokenService.verify(token + "."));
+        assertNull(tokenService.verify("42.not-a-number." + signature));
+    }
+    
+    @Test
+    void shortSecretIsRefused() {
+        assertThrows(IllegalStateException.class, () -> new TokenService("too-short", TTL_MINUTES, 100, clock));
+    }
+}
@@ -0,0 +1,171 @@
+package com.nyu.aichat.repository;
+
+import com.nyu.aichat.dto.response.ConversationDto;
+import com.nyu.aichat.dto.response.MessageDto;
+import com.nyu.aichat.entity.Conversation;
+import com.nyu.aichat.entity.Message;
+import com.nyu.aichat.entity.MessageRole;
+import com.nyu.aichat.entity.User;
+import com.nyu.aichat.util.EntityMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths through Hibernate and the real repositories, on an in-memory H2 database:
+ * the DTO projections the service uses (findLatestPage, findDtosByUserId) against loading
+ * managed entities and mapping them with EntityMapper. One conversation holds a full
+ * 10,000-message history; the user owns 200 conversations.
+ * Run with -prof gc to compare allocation per operation.
+ * H2 is not PostgreSQL, so absolute times differ from production; the gap between the two paths
+ * (hydration, dirty-tracking snapshots, persistence-context bookkeeping) is what this measures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryProjectionBenchmark {
+    private static final int MESSAGES = 10000;
+    private static final int CONVERSATIONS = 200;
+    private static final int BATCH = 500;
+    
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManager entityManager;
+    private MessageRepository messageRepository;
+    private ConversationRepository conversationRepository;
+    private Long userId;
+    private Long conversationId;
+    
+    @Setup
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1", "sa", "");
+        Properties jpaProperties = new Properties();
+        jpaProperties.setProperty("hibernate.hbm2ddl.auto", "create");
+        jpaProperties.setProperty("hibernate.jdbc.batch_size", String.valueOf(BATCH));
+        
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.nyu.aichat.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaProperties(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory factory = factoryBean.getObject();
+        
+        seed(factory);
+        entityManager = factory.createEntityManager();
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+        messageRepository = repositoryFactory.getRepository(MessageRepository.class);
+        conversationRepository = repositoryFactory.getRepository(ConversationRepository.class);
+    }
+    
+    private void seed(EntityManagerFactory factory) {
+        EntityManager em = factory.createEntityManager();
+        em.getTransaction().begin();
+        User user = new User("bench-user", "not-a-real-hash");
+        em.persist(user);
+        
+        Instant start = Instant.now().minusSeconds(MESSAGES);
+        Conversation history = null;
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            Conversation conversation = new Conversation(user, "Conversation " + i);
+            conversation.setCreatedAt(start.plusSeconds(i));
+            em.persist(conversation);
+            if (history == null) {
+                history = conversation;
+            }
+        }
+        for (int i = 0; i < MESSAGES; i++) {
+            Message message = new Message(history, i % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT,
+                    "Message " + i + " with enough text to look like a short chat turn.");
+            message.setTimestamp(start.plusSeconds(i));
+            em.persist(message);
+            if (i % BATCH == BATCH - 1) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        userId = user.getId();
+        conversationId = history.getId();
+        em.close();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        factoryBean.destroy();
+    }
+    
+    /**
+     * Full history as MessageDto rows straight from the query (the repository's read path).
+     */
+    @Benchmark
+    public List<MessageDto> messagesAsProjection() {
+        List<MessageDto> page = messageRepository.findLatestPage(conversationId, PageRequest.of(0, MESSAGES));
+        // Same per-call cost as the entity variant; the projection leaves nothing in the context
+        entityManager.clear();
+        return page;
+    }
+    
+    /**
+     * Full history loaded as managed Message entities, then mapped with EntityMapper.
+     */
+    @Benchmark
+    public List<MessageDto> messagesAsEntities() {
+        List<Message> messages = entityManager.createQuery(
+                "select m from Message m where m.conversation.id = :conversationId"
+                        + " order by m.timestamp desc, m.id desc", Message.class)
+                .setParameter("conversationId", conversationId)
+                .setMaxResults(MESSAGES)
+                .getResultList();
+        List<MessageDto> page = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            page.add(EntityMapper.toDto(message));
+        }
+        // Start the next call with an empty persistence context, as a new request would
+        entityManager.clear();
+        return page;
+    }
+    
+    /**
+     * Conversation list via findDtosByUserId.
+     */
+    @Benchmark
+    public List<ConversationDto> conversationsAsProjection() {
+        List<ConversationDto> conversations = conversationRepository.findDtosByUserId(userId);
+        entityManager.clear();
+        return conversations;
+    }
+    
+    /**
+     * Conversation list loaded as managed Conversation entities, then mapped with EntityMapper.
+     */
+    @Benchmark
+    public List<ConversationDto> conversationsAsEntities() {
+        List<Conversation> entities = entityManager.createQuery(
+                "select c from Conversation c where c.user.id = :userId and c.isDeleted = false"
+                        + " order by c.createdAt desc", Conversation.class)
+                .setParameter("userId", userId)
+                .getResultList();
+        List<ConversationDto> conversations = new ArrayList<>(entities.size());
+        for (Conversation conversation : entities) {
+            conversations.add(EntityMapper.toDto(conversation));
+        }
+        entityManager.clear();
+        return conversations;
+    }
+}
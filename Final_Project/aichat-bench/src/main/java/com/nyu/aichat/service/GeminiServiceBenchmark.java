@@ -0,0 +1,84 @@
+package com.nyu.aichat.service;
+
+import com.nyu.aichat.entity.Conversation;
+import com.nyu.aichat.entity.Message;
+import com.nyu.aichat.entity.MessageRole;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt building and Gemini response parsing, the CPU work around every Gemini call.
+ * Runs on a GeminiService without transport, guard, cache or metrics; neither method touches them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeminiServiceBenchmark {
+    
+    @Param({"0", "6", "20"})
+    private int contextMessages;
+    
+    @Param({"400", "4000"})
+    private int messageChars;
+    
+    private GeminiService geminiService;
+    private List<Message> context;
+    private String summary;
+    private String userMessage;
+    private String responseJson;
+    
+    @Setup
+    public void setUp() {
+        geminiService = new GeminiService(null, null, null, null, null);
+        
+        Conversation conversation = new Conversation();
+        conversation.setId(1L);
+        context = new ArrayList<>(contextMessages);
+        Instant now = Instant.now();
+        for (int i = 0; i < contextMessages; i++) {
+            Message message = new Message(conversation, i % 2 == 0 ? MessageRole.ASSISTANT : MessageRole.USER,
+                    text(messageChars, i));
+            message.setId((long) (contextMessages - i));
+            message.setTimestamp(now.minusSeconds(i));
+            context.add(message);
+        }
+        summary = contextMessages > 0 ? text(2000, 7) : null;
+        userMessage = text(messageChars, 42);
+        
+        responseJson = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\""
+                + text(messageChars, 99) + "\"}],\"role\":\"model\"},\"finishReason\":\"STOP\",\"index\":0}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":512,\"candidatesTokenCount\":128,\"totalTokenCount\":640}}";
+    }
+    
+    @Benchmark
+    public String buildPrompt() {
+        return geminiService.buildPrompt(userMessage, summary, context);
+    }
+    
+    @Benchmark
+    public String parseGeminiResponse() throws Exception {
+        return geminiService.parseGeminiResponse(responseJson);
+    }
+    
+    /**
+     * Deterministic prose of the given length, without characters that need JSON escaping.
+     */
+    static String text(int length, int seed) {
+        String[] words = {"context", "window", "token", "budget", "summary", "message", "stream", "reply",
+                "conversation", "latency", "index", "cache"};
+        StringBuilder sb = new StringBuilder(length + 16);
+        int i = seed;
+        while (sb.length() < length) {
+            sb.append(words[i++ % words.length]).append(i % 11 == 0 ? ". " : " ");
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.nyu.aichat.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of per-conversation send ordering under contention: 8 threads send to 1, 16 or 1024
+ * conversations, each send doing a fixed amount of CPU work while it holds its turn.
+ * keyedSerial is the conversation send queue, globalLock is the single-lock alternative it avoids,
+ * and unordered is the upper bound with no ordering at all.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class KeyedSerialExecutorBenchmark {
+    
+    @Param({"1", "16", "1024"})
+    private int conversations;
+    
+    @Param({"500"})
+    private long workTokens;
+    
+    private KeyedSerialExecutor<Long> sendQueue;
+    private final Object globalLock = new Object();
+    
+    @Setup
+    public void setUp() {
+        sendQueue = new KeyedSerialExecutor<>(TimeUnit.MINUTES.toMillis(1));
+    }
+    
+    /**
+     * Per-thread cursor over the conversation IDs, starting at a different offset for each thread.
+     */
+    @State(Scope.Thread)
+    public static class Sender {
+        private long next;
+        
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            next = threadParams.getThreadIndex();
+        }
+        
+        long nextConversation(int conversations) {
+            return next++ % conversations;
+        }
+    }
+    
+    @Benchmark
+    public long keyedSerial(Sender sender) {
+        return sendQueue.runSerially(sender.nextConversation(conversations), this::send);
+    }
+    
+    @Benchmark
+    public long globalLock(Sender sender) {
+        sender.nextConversation(conversations);
+        synchronized (globalLock) {
+            return send();
+        }
+    }
+    
+    @Benchmark
+    public long unordered(Sender sender) {
+        sender.nextConversation(conversations);
+        return send();
+    }
+    
+    private long send() {
+        Blackhole.consumeCPU(workTokens);
+        return workTokens;
+    }
+}
@@ -0,0 +1,67 @@
+package com.nyu.aichat.util;
+
+import com.nyu.aichat.dto.response.MessageDto;
+import com.nyu.aichat.entity.Conversation;
+import com.nyu.aichat.entity.Message;
+import com.nyu.aichat.entity.MessageRole;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityMapper.toDto over a full conversation (10,000 messages, the per-conversation limit).
+ * Entities are built in memory, standing in for what the repository would return.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityMapperBenchmark {
+    private static final int MESSAGES = 10000;
+    
+    private List<Message> messages;
+    
+    @Setup
+    public void setUp() {
+        Conversation conversation = new Conversation();
+        conversation.setId(1L);
+        messages = new ArrayList<>(MESSAGES);
+        Instant start = Instant.now().minusSeconds(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            Message message = new Message(conversation, i % 2 == 0 ? MessageRole.USER : MessageRole.ASSISTANT,
+                    "Message " + i + " with enough text to look like a short chat turn.");
+            message.setId((long) i + 1);
+            message.setTimestamp(start.plusSeconds(i));
+            messages.add(message);
+        }
+    }
+    
+    /**
+     * Score is per message.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void toDto(Blackhole blackhole) {
+        for (Message message : messages) {
+            blackhole.consume(EntityMapper.toDto(message));
+        }
+    }
+    
+    /**
+     * Score is per conversation, including the result list.
+     */
+    @Benchmark
+    public List<MessageDto> toDtoList() {
+        List<MessageDto> dtos = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            dtos.add(EntityMapper.toDto(message));
+        }
+        return dtos;
+    }
+}
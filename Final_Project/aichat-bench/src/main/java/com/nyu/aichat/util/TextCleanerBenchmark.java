@@ -0,0 +1,42 @@
+package com.nyu.aichat.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextCleaner.cleanResponse on large replies with a reasoning block and blank lines,
+ * the shape it sees once per reply (and once per stream, on the joined text).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextCleanerBenchmark {
+    
+    @Param({"4096", "65536", "524288"})
+    private int responseChars;
+    
+    private String response;
+    
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder(responseChars + 256);
+        sb.append("<think>\nWorking out the answer step by step before replying.\n</think>\n\n");
+        int line = 0;
+        while (sb.length() < responseChars) {
+            sb.append("- Point ").append(line).append(": keep the prompt inside the token budget and reuse cached context.\n");
+            if (++line % 4 == 0) {
+                sb.append("   \n\n");
+            }
+        }
+        response = sb.toString();
+    }
+    
+    @Benchmark
+    public String cleanResponse() {
+        return TextCleaner.cleanResponse(response);
+    }
+}
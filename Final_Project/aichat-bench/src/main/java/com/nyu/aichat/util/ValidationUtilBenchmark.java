@@ -0,0 +1,26 @@
+package com.nyu.aichat.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ValidationUtil.validateUsername, which runs its character-class regex on every signup and login.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationUtilBenchmark {
+    
+    @Param({"bob", "bench_user_2024", "abcdefghij_012345678"})
+    private String username;
+    
+    @Benchmark
+    public String validateUsername() {
+        ValidationUtil.validateUsername(username);
+        return username;
+    }
+}
@@ -0,0 +1,54 @@
+package com.nyu.aichat.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal "--name value" / "--name=value" / "--flag" argument parser.
+ */
+final class CommandLine {
+    private final Map<String, String> options;
+    
+    private CommandLine(Map<String, String> options) {
+        this.options = options;
+    }
+    
+    static CommandLine parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                options.put(name.substring(0, eq), name.substring(eq + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "true");
+            }
+        }
+        return new CommandLine(options);
+    }
+    
+    String getString(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+    
+    int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+    
+    double getDouble(String name, double defaultValue) {
+        String value = options.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+    
+    boolean getBoolean(String name, boolean defaultValue) {
+        String value = options.get(name);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
@@ -0,0 +1,213 @@
+package com.nyu.aichat.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Gemini API, so the backend can be load-tested without calling Google.
+ * Answers POST .../models/{model}:generateContent with a GenerateContentResponse and
+ * .../models/{model}:streamGenerateContent?alt=sse with "data:" events, after a configurable delay.
+ * 
+ * Point the backend at it with gemini.api.base-url=http://localhost:{port}/v1beta and any
+ * non-empty gemini.api.key.
+ * 
+ * Options:
+ *   --port 8089                 listen port
+ *   --latency-ms 800            delay before the reply (before the first event when streaming)
+ *   --jitter-ms 200             uniform extra delay, 0..jitter
+ *   --error-rate 0.0            fraction of calls answered with --error-status
+ *   --error-status 503          HTTP status of failed calls
+ *   --response-chars 1200       length of the generated reply
+ *   --stream-chunks 20          events per streamed reply
+ *   --chunk-interval-ms 30      delay between streamed events
+ */
+public final class GeminiStubServer {
+    private static final String GENERATE_SUFFIX = ":generateContent";
+    private static final String STREAM_SUFFIX = ":streamGenerateContent";
+    private static final String API_KEY_HEADER = "x-goog-api-key";
+    private static final String[] WORDS = {"the", "context", "window", "keeps", "recent", "turns", "and",
+            "a", "summary", "of", "older", "ones", "so", "prompts", "stay", "inside", "budget"};
+    
+    private final int latencyMs;
+    private final int jitterMs;
+    private final double errorRate;
+    private final int errorStatus;
+    private final int responseChars;
+    private final int streamChunks;
+    private final int chunkIntervalMs;
+    
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    
+    GeminiStubServer(int latencyMs, int jitterMs, double errorRate, int errorStatus,
+                     int responseChars, int streamChunks, int chunkIntervalMs) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.responseChars = responseChars;
+        this.streamChunks = Math.max(1, streamChunks);
+        this.chunkIntervalMs = chunkIntervalMs;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        CommandLine cli = CommandLine.parse(args);
+        int port = cli.getInt("port", 8089);
+        GeminiStubServer stub = new GeminiStubServer(
+                cli.getInt("latency-ms", 800),
+                cli.getInt("jitter-ms", 200),
+                cli.getDouble("error-rate", 0.0),
+                cli.getInt("error-status", 503),
+                cli.getInt("response-chars", 1200),
+                cli.getInt("stream-chunks", 20),
+                cli.getInt("chunk-interval-ms", 30));
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", stub::handle);
+        // Every request sleeps for its latency, so each needs its own thread
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.printf(
+                "Gemini stub served %d requests, %d errors%n", stub.requestCount.get(), stub.errorCount.get())));
+        System.out.printf("Gemini stub listening on http://localhost:%d/v1beta "
+                        + "(latency %d+%d ms, error rate %.3f, %d chars)%n",
+                port, stub.latencyMs, stub.jitterMs, stub.errorRate, stub.responseChars);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            drain(exchange.getRequestBody());
+            String path = exchange.getRequestURI().getPath();
+            
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, errorJson(405, "Method not allowed", "INVALID_ARGUMENT"));
+                return;
+            }
+            if (exchange.getRequestHeaders().getFirst(API_KEY_HEADER) == null) {
+                sendJson(exchange, 403, errorJson(403, "Missing API key", "PERMISSION_DENIED"));
+                return;
+            }
+            if (!path.endsWith(GENERATE_SUFFIX) && !path.endsWith(STREAM_SUFFIX)) {
+                sendJson(exchange, 404, errorJson(404, "Not found: " + path, "NOT_FOUND"));
+                return;
+            }
+            
+            requestCount.incrementAndGet();
+            sleep(latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextInt(jitterMs + 1) : 0));
+            
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errorCount.incrementAndGet();
+                sendJson(exchange, errorStatus, errorJson(errorStatus, "The model is overloaded.", "UNAVAILABLE"));
+            } else if (path.endsWith(STREAM_SUFFIX)) {
+                stream(exchange);
+            } else {
+                sendJson(exchange, 200, responseJson(generateText(responseChars)));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void stream(HttpExchange exchange) throws IOException {
+        String text = generateText(responseChars);
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int chunkLength = (text.length() + streamChunks - 1) / streamChunks;
+        for (int start = 0; start < text.length(); start += chunkLength) {
+            if (start > 0) {
+                sleep(chunkIntervalMs);
+            }
+            String chunk = text.substring(start, Math.min(text.length(), start + chunkLength));
+            out.write(("data: " + responseJson(chunk) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.close();
+    }
+    
+    private static String responseJson(String text) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", text);
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        
+        JsonObject content = new JsonObject();
+        content.add("parts", parts);
+        content.addProperty("role", "model");
+        
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        candidate.addProperty("finishReason", "STOP");
+        candidate.addProperty("index", 0);
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        
+        JsonObject response = new JsonObject();
+        response.add("candidates", candidates);
+        return response.toString();
+    }
+    
+    private static String errorJson(int code, String message, String status) {
+        JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+        error.addProperty("status", status);
+        JsonObject body = new JsonObject();
+        body.add("error", error);
+        return body.toString();
+    }
+    
+    /**
+     * Random prose of the given length, with a line break every few sentences.
+     */
+    private static String generateText(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+            int r = random.nextInt(40);
+            sb.append(r == 0 ? ".\n" : r < 4 ? ". " : " ");
+        }
+        sb.setLength(length);
+        return sb.toString().trim();
+    }
+    
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // Discard the prompt; replies do not depend on it
+        }
+    }
+    
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.nyu.aichat.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects raw latencies for one operation and reports exact percentiles.
+ * Each worker thread owns its recorder; results are merged once the run ends.
+ */
+final class LatencyRecorder {
+    private long[] nanos = new long[1024];
+    private int size;
+    
+    void record(long elapsedNanos) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = elapsedNanos;
+    }
+    
+    void addAll(LatencyRecorder other) {
+        for (int i = 0; i < other.size; i++) {
+            record(other.nanos[i]);
+        }
+    }
+    
+    int count() {
+        return size;
+    }
+    
+    /**
+     * Formats count, mean and p50/p90/p95/p99/p99.9/max in milliseconds (nearest-rank percentiles).
+     */
+    String summary() {
+        if (size == 0) {
+            return "no samples";
+        }
+        long[] sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long value : sorted) {
+            total += value;
+        }
+        return String.format("n=%d mean=%.1f p50=%.1f p90=%.1f p95=%.1f p99=%.1f p99.9=%.1f max=%.1f (ms)",
+                size, toMillis(total / size),
+                toMillis(percentile(sorted, 50)), toMillis(percentile(sorted, 90)),
+                toMillis(percentile(sorted, 95)), toMillis(percentile(sorted, 99)),
+                toMillis(percentile(sorted, 99.9)), toMillis(sorted[size - 1]));
+    }
+    
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+    
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
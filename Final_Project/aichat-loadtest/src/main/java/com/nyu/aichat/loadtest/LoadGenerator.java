@@ -0,0 +1,364 @@
+package com.nyu.aichat.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the chat backend with N simulated users and reports throughput and latency percentiles.
+ * Each user signs up, creates a conversation, then sends messages back to back (plus think time)
+ * until the run ends. Setup is not measured; requests started during warm-up are not recorded.
+ * 
+ * Options:
+ *   --base-url http://localhost:8080/api/v1
+ *   --users 50                  concurrent simulated users
+ *   --duration-seconds 60       measured run length, after warm-up
+ *   --warmup-seconds 10
+ *   --think-time-ms 0           pause between a user's messages
+ *   --message-chars 200         length of each user message
+ *   --mode sync                 "sync" (POST /messages) or "stream" (POST /messages/stream)
+ *   --bypass-cache true         send Cache-Control: no-cache so every message reaches Gemini
+ */
+public final class LoadGenerator {
+    // Mirrors Constants.ERROR_AI_FALLBACK in the backend
+    private static final String AI_FALLBACK = "I'm sorry, I couldn't generate a response.";
+    private static final String PASSWORD = "loadtest-password";
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 120000;
+    private static final int MAX_SETUP_ATTEMPTS = 20;
+    
+    private final Gson gson = new Gson();
+    private final String baseUrl;
+    private final int users;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int thinkTimeMs;
+    private final int messageChars;
+    private final boolean stream;
+    private final boolean bypassCache;
+    
+    // Set just before the workers are released
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+    
+    LoadGenerator(String baseUrl, int users, int durationSeconds, int warmupSeconds, int thinkTimeMs,
+                  int messageChars, boolean stream, boolean bypassCache) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.thinkTimeMs = thinkTimeMs;
+        this.messageChars = messageChars;
+        this.stream = stream;
+        this.bypassCache = bypassCache;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        CommandLine cli = CommandLine.parse(args);
+        LoadGenerator generator = new LoadGenerator(
+                cli.getString("base-url", "http://localhost:8080/api/v1"),
+                cli.getInt("users", 50),
+                cli.getInt("duration-seconds", 60),
+                cli.getInt("warmup-seconds", 10),
+                cli.getInt("think-time-ms", 0),
+                cli.getInt("message-chars", 200),
+                "stream".equals(cli.getString("mode", "sync")),
+                cli.getBoolean("bypass-cache", true));
+        generator.run();
+    }
+    
+    void run() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        try {
+            System.out.printf("Setting up %d users against %s%n", users, baseUrl);
+            String runId = Long.toString(System.currentTimeMillis() % 60466176L, 36);
+            List<Future<Session>> pending = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String username = "lt" + runId + "_" + i;
+                pending.add(pool.submit(() -> setUp(username)));
+            }
+            List<Session> sessions = new ArrayList<>();
+            for (Future<Session> future : pending) {
+                sessions.add(future.get());
+            }
+            
+            System.out.printf("Running %s mode: %d s warm-up, %d s measured%n", stream ? "stream" : "sync",
+                    TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Worker>> running = new ArrayList<>();
+            for (Session session : sessions) {
+                running.add(pool.submit(() -> {
+                    start.await();
+                    Worker worker = new Worker(session);
+                    worker.run();
+                    return worker;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            measureFrom = startNanos + warmupNanos;
+            measureUntil = measureFrom + durationNanos;
+            start.countDown();
+            
+            List<Worker> workers = new ArrayList<>();
+            for (Future<Worker> future : running) {
+                workers.add(future.get());
+            }
+            report(workers);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private Session setUp(String username) throws IOException, InterruptedException {
+        Map<String, String> credentials = new TreeMap<>();
+        credentials.put("username", username);
+        credentials.put("password", PASSWORD);
+        JsonObject login = gson.fromJson(postWithRetry("/auth/signup", null, credentials), JsonObject.class);
+        Session session = new Session(login.get("userId").getAsLong(), login.get("token").getAsString());
+        
+        Map<String, String> conversation = new TreeMap<>();
+        conversation.put("title", "Load test");
+        JsonObject created = gson.fromJson(postWithRetry("/conversations", session, conversation), JsonObject.class);
+        session.conversationId = created.get("id").getAsLong();
+        return session;
+    }
+    
+    /**
+     * Setup calls retry on 503 SERVICE_BUSY, which the bounded password-hash pool returns under a signup burst.
+     */
+    private String postWithRetry(String path, Session session, Object body) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            HttpURLConnection connection = open("POST", path, session);
+            writeJson(connection, body);
+            int status = connection.getResponseCode();
+            String response = readBody(connection);
+            if (status / 100 == 2) {
+                return response;
+            }
+            if (status != 503 || attempt == MAX_SETUP_ATTEMPTS) {
+                throw new IOException("POST " + path + " failed with " + status + ": " + response);
+            }
+            Thread.sleep(100L * attempt);
+        }
+    }
+    
+    private void report(List<Worker> workers) {
+        LatencyRecorder latency = new LatencyRecorder();
+        LatencyRecorder firstToken = new LatencyRecorder();
+        Map<String, Integer> failures = new TreeMap<>();
+        int fallbacks = 0;
+        for (Worker worker : workers) {
+            latency.addAll(worker.latency);
+            firstToken.addAll(worker.firstToken);
+            fallbacks += worker.fallbacks;
+            for (Map.Entry<String, Integer> entry : worker.failures.entrySet()) {
+                failures.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        
+        double seconds = durationNanos / 1e9;
+        System.out.println();
+        System.out.printf("Users: %d, mode: %s, measured: %.0f s%n", users, stream ? "stream" : "sync", seconds);
+        System.out.printf("Throughput: %.1f replies/s (%d replies, %d fallback replies)%n",
+                latency.count() / seconds, latency.count(), fallbacks);
+        System.out.println("Reply latency:       " + latency.summary());
+        if (stream) {
+            System.out.println("Time to first token: " + firstToken.summary());
+        }
+        System.out.println("Failed requests:     " + (failures.isEmpty() ? "none" : failures));
+    }
+    
+    private HttpURLConnection open(String method, String path, Session session) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        if (session != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + session.token);
+            connection.setRequestProperty("X-User-Id", session.userId.toString());
+        }
+        if (bypassCache) {
+            connection.setRequestProperty("Cache-Control", "no-cache");
+        }
+        return connection;
+    }
+    
+    private void writeJson(HttpURLConnection connection, Object body) throws IOException {
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(gson.toJson(body).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * Reads the whole body, from the error stream for non-2xx responses, so the connection can be reused.
+     */
+    private static String readBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static final class Session {
+        private final Long userId;
+        private final String token;
+        private Long conversationId;
+        
+        private Session(Long userId, String token) {
+            this.userId = userId;
+            this.token = token;
+        }
+    }
+    
+    /**
+     * One simulated user; owns its recorders so the hot loop needs no synchronization.
+     */
+    private final class Worker {
+        private final Session session;
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final LatencyRecorder firstToken = new LatencyRecorder();
+        private final Map<String, Integer> failures = new TreeMap<>();
+        private int fallbacks;
+        private int sequence;
+        
+        private Worker(Session session) {
+            this.session = session;
+        }
+        
+        private void run() throws InterruptedException {
+            while (System.nanoTime() < measureUntil) {
+                long started = System.nanoTime();
+                boolean measured = started >= measureFrom;
+                try {
+                    if (stream) {
+                        sendStreaming(started, measured);
+                    } else {
+                        sendSync(started, measured);
+                    }
+                } catch (IOException e) {
+                    if (measured) {
+                        failures.merge(e.getClass().getSimpleName(), 1, Integer::sum);
+                    }
+                }
+                if (thinkTimeMs > 0) {
+                    Thread.sleep(thinkTimeMs);
+                }
+            }
+        }
+        
+        private void sendSync(long started, boolean measured) throws IOException {
+            HttpURLConnection connection = open("POST", messagesPath(""), session);
+            writeJson(connection, nextMessage());
+            int status = connection.getResponseCode();
+            String body = readBody(connection);
+            long elapsed = System.nanoTime() - started;
+            if (!measured) {
+                return;
+            }
+            if (status != 200) {
+                failures.merge("HTTP " + status, 1, Integer::sum);
+                return;
+            }
+            latency.record(elapsed);
+            JsonObject reply = gson.fromJson(body, JsonObject.class).getAsJsonObject("assistantMessage");
+            if (AI_FALLBACK.equals(reply.get("content").getAsString())) {
+                fallbacks++;
+            }
+        }
+        
+        private void sendStreaming(long started, boolean measured) throws IOException {
+            HttpURLConnection connection = open("POST", messagesPath("/stream"), session);
+            connection.setRequestProperty("Accept", "text/event-stream");
+            writeJson(connection, nextMessage());
+            int status = connection.getResponseCode();
+            if (status != 200) {
+                readBody(connection);
+                if (measured) {
+                    failures.merge("HTTP " + status, 1, Integer::sum);
+                }
+                return;
+            }
+            
+            long firstTokenAt = 0;
+            String event = null;
+            String outcome = null;
+            StringBuilder doneData = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("event:")) {
+                        event = line.substring(6).trim();
+                        if ("token".equals(event) && firstTokenAt == 0) {
+                            firstTokenAt = System.nanoTime();
+                        } else if ("done".equals(event) || "error".equals(event)) {
+                            outcome = event;
+                        }
+                    } else if (line.startsWith("data:") && "done".equals(event)) {
+                        doneData.append(line.substring(5));
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - started;
+            if (!measured) {
+                return;
+            }
+            if (!"done".equals(outcome)) {
+                failures.merge(outcome == null ? "stream ended early" : "SSE error", 1, Integer::sum);
+                return;
+            }
+            latency.record(elapsed);
+            if (firstTokenAt != 0) {
+                firstToken.record(firstTokenAt - started);
+            }
+            JsonObject reply = gson.fromJson(doneData.toString(), JsonObject.class);
+            if (AI_FALLBACK.equals(reply.get("content").getAsString())) {
+                fallbacks++;
+            }
+        }
+        
+        private String messagesPath(String suffix) {
+            return "/conversations/" + session.conversationId + "/messages" + suffix;
+        }
+        
+        private Map<String, String> nextMessage() {
+            StringBuilder text = new StringBuilder("Question ").append(++sequence)
+                    .append(" from user ").append(session.userId).append(':');
+            while (text.length() < messageChars) {
+                text.append(" how should the context window be sized");
+            }
+            text.setLength(messageChars);
+            Map<String, String> body = new TreeMap<>();
+            body.put("text", text.toString());
+            return body;
+        }
+    }
+}
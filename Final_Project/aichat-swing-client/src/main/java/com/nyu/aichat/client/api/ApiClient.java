@@ -5,6 +5,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.reflect.TypeToken;
 import com.nyu.aichat.client.model.ConversationView;
+import com.nyu.aichat.client.model.MessagePage;
 import com.nyu.aichat.client.model.MessageView;
 import com.nyu.aichat.client.util.ConfigLoader;
 
@@ -31,9 +32,14 @@ import java.util.concurrent.Executors;
  */
 public class ApiClient {
     private static final String DEFAULT_BASE_URL = "http://localhost:8080/api/v1";
+    private static final int MESSAGE_PAGE_SIZE = 50;
+    private static final long JOB_POLL_WAIT_MS = 20000;
+    private static final String JOB_COMPLETED = "COMPLETED";
+    private static final String JOB_FAILED = "FAILED";
     private final String baseUrl;
     private final ExecutorService executorService;
     private final Gson gson;
+    private volatile String authToken;
     
     /**
      * Constructor using default base URL from config.properties.
@@ -68,7 +74,7 @@ public class ApiClient {
         body.put("password", password);
         
         String response = sendPostRequest("/auth/login", null, body);
-        return gson.fromJson(response, LoginResponse.class);
+        return rememberToken(gson.fromJson(response, LoginResponse.class));
     }
     
     /**
@@ -81,15 +87,23 @@ public class ApiClient {
         body.put("password", password);
         
         String response = sendPostRequest("/auth/signup", null, body);
-        return gson.fromJson(response, LoginResponse.class);
+        return rememberToken(gson.fromJson(response, LoginResponse.class));
     }
     
     /**
-     * Get all conversations for a user.
-     * GET /api/v1/conversations
+     * Keeps the session token from a login/signup response for later requests.
+     */
+    private LoginResponse rememberToken(LoginResponse loginResponse) {
+        authToken = loginResponse.getToken();
+        return loginResponse;
+    }
+    
+    /**
+     * Get all conversations for a user, with last-message previews for the sidebar.
+     * GET /api/v1/conversations/summaries
      */
     public List<ConversationView> getConversations(Long userId) throws ApiException {
-        String response = sendGetRequest("/conversations", userId);
+        String response = sendGetRequest("/conversations/summaries", userId);
         return gson.fromJson(response, new TypeToken<List<ConversationView>>(){}.getType());
     }
     
@@ -127,31 +141,67 @@ public class ApiClient {
     }
     
     /**
-     * Get all messages for a conversation.
-     * GET /api/v1/conversations/{id}/messages
+     * Get the latest page of messages for a conversation.
+     * GET /api/v1/conversations/{id}/messages?limit=N
      */
     public List<MessageView> getMessages(Long conversationId, Long userId) throws ApiException {
-        String response = sendGetRequest("/conversations/" + conversationId + "/messages", userId);
-        return gson.fromJson(response, new TypeToken<List<MessageView>>(){}.getType());
+        return getMessagesPage(conversationId, userId, null, MESSAGE_PAGE_SIZE).getMessages();
+    }
+    
+    /**
+     * Get one page of messages older than the given cursor.
+     * GET /api/v1/conversations/{id}/messages?before={cursor}&limit=N
+     * Pass a null cursor for the latest page.
+     */
+    public MessagePage getMessagesPage(Long conversationId, Long userId, Long before, int limit) throws ApiException {
+        String endpoint = "/conversations/" + conversationId + "/messages?limit=" + limit;
+        if (before != null) {
+            endpoint += "&before=" + before;
+        }
+        String response = sendGetRequest(endpoint, userId);
+        return gson.fromJson(response, MessagePage.class);
     }
     
     /**
      * Send a message and get AI response.
-     * POST /api/v1/conversations/{id}/messages
+     * POST /api/v1/conversations/{id}/messages?async=true, then long-polls GET /api/v1/jobs/{jobId}
+     * until the reply is ready, so a slow reply never runs into the read timeout.
      * Returns the assistant's response message.
      */
     public MessageView sendMessage(Long conversationId, Long userId, String text) throws ApiException {
         Map<String, String> body = new HashMap<>();
         body.put("text", text);
         
-        String response = sendPostRequest("/conversations/" + conversationId + "/messages", userId, body);
+        String response = sendPostRequest("/conversations/" + conversationId + "/messages?async=true", userId, body);
+        Map<String, Object> job = gson.fromJson(response, Map.class);
+        String jobId = (String) job.get("jobId");
+        
+        // Each poll returns after at most pollWaitMs, well inside the read timeout
+        while (!isJobFinished(job)) {
+            response = sendGetRequest("/jobs/" + jobId + "?waitMs=" + pollWaitMs(), userId);
+            job = gson.fromJson(response, Map.class);
+        }
         
-        // Parse SendMessageResponse wrapper
-        Map<String, Object> responseMap = gson.fromJson(response, Map.class);
-        Map<String, Object> assistantMessageMap = (Map<String, Object>) responseMap.get("assistantMessage");
+        if (JOB_FAILED.equals(job.get("status"))) {
+            Map<String, String> error = (Map<String, String>) job.get("error");
+            throw new ApiException(error.get("error"), error.get("message"));
+        }
         
         // Convert to MessageView
-        return gson.fromJson(gson.toJson(assistantMessageMap), MessageView.class);
+        return gson.fromJson(gson.toJson(job.get("assistantMessage")), MessageView.class);
+    }
+    
+    private static boolean isJobFinished(Map<String, Object> job) {
+        Object status = job.get("status");
+        return JOB_COMPLETED.equals(status) || JOB_FAILED.equals(status);
+    }
+    
+    /**
+     * Long-poll wait: half the read timeout, capped at JOB_POLL_WAIT_MS.
+     */
+    private static long pollWaitMs() {
+        int timeout = ConfigLoader.getApiTimeout();
+        return timeout > 0 ? Math.min(JOB_POLL_WAIT_MS, timeout / 2) : JOB_POLL_WAIT_MS;
     }
     
     // ========== HTTP Helper Methods ==========
@@ -247,10 +297,19 @@ public class ApiClient {
             conn.setRequestProperty("X-User-Id", userId.toString());
         }
         
-        // Set timeout
+        // Session token from login/signup; the backend takes the user ID from it
+        String token = authToken;
+        if (userId != null && token != null) {
+            conn.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        
+        // Set timeout, and tell the backend so it gives up on Gemini before we stop waiting
         int timeout = ConfigLoader.getApiTimeout();
         conn.setConnectTimeout(timeout);
         conn.setReadTimeout(timeout);
+        if (timeout > 0) {
+            conn.setRequestProperty("X-Request-Timeout-Ms", String.valueOf(timeout));
+        }
         
         return conn;
     }
@@ -311,6 +370,8 @@ public class ApiClient {
     public static class LoginResponse {
         private Long userId;
         private String username;
+        private String token;
+        private Instant expiresAt;
         
         public Long getUserId() {
             return userId;
@@ -327,6 +388,22 @@ public class ApiClient {
         public void setUsername(String username) {
             this.username = username;
         }
+        
+        public String getToken() {
+            return token;
+        }
+        
+        public void setToken(String token) {
+            this.token = token;
+        }
+        
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+        
+        public void setExpiresAt(Instant expiresAt) {
+            this.expiresAt = expiresAt;
+        }
     }
 }
 
@@ -4,12 +4,15 @@ import java.time.Instant;
 
 /**
  * Represents a conversation in the UI.
- * Maps from backend ConversationDto.
+ * Maps from backend ConversationDto or ConversationSummaryDto.
  */
 public class ConversationView {
     private Long id;
     private String title;
     private Instant createdAt;
+    private int messageCount;
+    private Instant lastActivityAt;
+    private String lastMessagePreview;
     
     public ConversationView() {
     }
@@ -44,17 +47,42 @@ public class ConversationView {
         this.createdAt = createdAt;
     }
     
+    public int getMessageCount() {
+        return messageCount;
+    }
+    
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+    
+    public Instant getLastActivityAt() {
+        return lastActivityAt;
+    }
+    
+    public void setLastActivityAt(Instant lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+    
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+    
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+    
     /**
-     * Formats the creation date for display in the UI.
+     * Formats the last activity date (or creation date if unknown) for display in the UI.
      * @return Formatted date string (e.g., "2h ago", "Yesterday", "Jan 15")
      */
     public String getFormattedDate() {
-        if (createdAt == null) {
+        Instant shownAt = lastActivityAt != null ? lastActivityAt : createdAt;
+        if (shownAt == null) {
             return "";
         }
         
         Instant now = Instant.now();
-        long diffSeconds = now.getEpochSecond() - createdAt.getEpochSecond();
+        long diffSeconds = now.getEpochSecond() - shownAt.getEpochSecond();
         
         if (diffSeconds < 60) {
             return "Just now";
@@ -69,7 +97,7 @@ public class ConversationView {
             return days + "d ago";
         } else {
             // Format as date: "Jan 15" or "2024-01-15"
-            return createdAt.toString().substring(0, 10); // Simple format
+            return shownAt.toString().substring(0, 10); // Simple format
         }
     }
     
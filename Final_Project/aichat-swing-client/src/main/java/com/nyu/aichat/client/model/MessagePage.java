@@ -0,0 +1,39 @@
+package com.nyu.aichat.client.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of conversation history.
+ * Maps from backend MessagePageResponse.
+ */
+public class MessagePage {
+    private List<MessageView> messages;  // Oldest first within the page
+    private Long nextCursor;             // ID to pass as "before" for the next older page, or null
+    
+    public MessagePage() {
+    }
+    
+    public List<MessageView> getMessages() {
+        return messages != null ? messages : new ArrayList<>();
+    }
+    
+    public void setMessages(List<MessageView> messages) {
+        this.messages = messages;
+    }
+    
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * Checks if older messages can be loaded.
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
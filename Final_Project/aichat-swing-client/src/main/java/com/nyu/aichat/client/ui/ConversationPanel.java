@@ -137,6 +137,8 @@ public class ConversationPanel extends JPanel {
      * Custom cell renderer for conversation list items.
      */
     private static class ConversationListCellRenderer extends DefaultListCellRenderer {
+        private static final int PREVIEW_CHARS = 40;
+        
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value,
                                                       int index, boolean isSelected,
@@ -145,12 +147,26 @@ public class ConversationPanel extends JPanel {
             
             if (value instanceof ConversationView) {
                 ConversationView conv = (ConversationView) value;
-                setText("<html><b>" + conv.getTitle() + "</b><br><small>" + 
-                       conv.getFormattedDate() + "</small></html>");
+                StringBuilder html = new StringBuilder("<html><b>").append(conv.getTitle()).append("</b>");
+                if (conv.getLastMessagePreview() != null) {
+                    html.append("<br><small>").append(escapeHtml(preview(conv.getLastMessagePreview())))
+                        .append("</small>");
+                }
+                html.append("<br><small>").append(conv.getFormattedDate()).append("</small></html>");
+                setText(html.toString());
             }
             
             return this;
         }
+        
+        private static String preview(String text) {
+            String singleLine = text.replaceAll("\\s+", " ").trim();
+            return singleLine.length() > PREVIEW_CHARS ? singleLine.substring(0, PREVIEW_CHARS) + "..." : singleLine;
+        }
+        
+        private static String escapeHtml(String text) {
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        }
     }
 }
 